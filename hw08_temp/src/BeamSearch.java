@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * BeamSearch finds the most likely sentences of a trained MarkovChain, instead
+ * of random ones, e.g. to review what a bot is most likely to say.
+ *
+ * The probability of a sentence is the product of the probabilities of its
+ * bigrams (including the final bigram to null), where the probability of the
+ * bigram (a, b) is the number of times b followed a divided by the number of
+ * times a was followed by anything. Scores are kept as natural logarithms.
+ *
+ * The search extends all partial sentences one word at a time, keeping only the
+ * beamWidth most likely ones at each length, and stops once no partial sentence
+ * can beat the k best complete sentences found so far (extending a sentence can
+ * only make it less likely). A wider beam finds better sentences but takes
+ * longer. Sentences longer than maxWords words are never considered.
+ *
+ * A BeamSearch is not thread-safe, and reflects the chain at the time of each
+ * search.
+ */
+public class BeamSearch {
+
+	private final MarkovChain mc;
+	private final int beamWidth;
+	private final int maxWords;
+
+	// every partial sentence considered by the current search, as its last word
+	// and the index of the partial sentence it extends (-1 for a first word)
+	private String[] words = new String[64];
+	private int[] parents = new int[64];
+	private int hypotheses = 0;
+
+	/**
+	 * @param mc        - the (non-null) MarkovChain to search
+	 * @param beamWidth - the number of partial sentences kept at each length
+	 * @param maxWords  - the maximum number of words in a sentence
+	 * @throws IllegalArgumentException if mc is null or beamWidth or maxWords is
+	 *                                  less than 1
+	 */
+	public BeamSearch(MarkovChain mc, int beamWidth, int maxWords) {
+		if (mc == null) {
+			throw new IllegalArgumentException("MarkovChain cannot be null");
+		}
+		if (beamWidth < 1 || maxWords < 1) {
+			throw new IllegalArgumentException("beamWidth and maxWords must be positive");
+		}
+		this.mc = mc;
+		this.beamWidth = beamWidth;
+		this.maxWords = maxWords;
+	}
+
+	/**
+	 * Finds the k most likely sentences that start with the given word. Their
+	 * probabilities are conditional on the sentence starting with start.
+	 *
+	 * @param start - the first word of the sentences
+	 * @param k     - the number of sentences to find
+	 * @return up to k sentences, from the most likely to the least likely
+	 * @throws IllegalArgumentException if start is null or k is less than 1
+	 */
+	public List<ScoredSentence> mostLikely(String start, int k) {
+		if (start == null) {
+			throw new IllegalArgumentException("start cannot be null");
+		}
+		TopScores beam = new TopScores(beamWidth);
+		hypotheses = 0;
+		beam.offer(0, addHypothesis(start, -1));
+		return search(beam, k);
+	}
+
+	/**
+	 * Finds the k most likely sentences overall, starting with any of the chain's
+	 * start words (weighted by how often each started a sentence).
+	 *
+	 * @param k - the number of sentences to find
+	 * @return up to k sentences, from the most likely to the least likely
+	 * @throws IllegalArgumentException if k is less than 1
+	 */
+	public List<ScoredSentence> mostLikely(int k) {
+		TopScores beam = new TopScores(beamWidth);
+		hypotheses = 0;
+		int total = mc.startWords.getTotal();
+		if (total > 0) {
+			double logTotal = Math.log(total);
+			mc.startWords.forEachCount((word, count) -> {
+				double score = Math.log(count) - logTotal;
+				if (score > beam.threshold()) {
+					beam.offer(score, addHypothesis(word, -1));
+				}
+			});
+		}
+		return search(beam, k);
+	}
+
+	private List<ScoredSentence> search(TopScores firstBeam, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		TopScores results = new TopScores(k);
+		TopScores[] beams = { firstBeam, new TopScores(beamWidth) };
+		for (int length = 1; length <= maxWords; length++) {
+			TopScores beam = beams[(length - 1) % 2];
+			TopScores extended = beams[length % 2];
+			if (beam.size() == 0) {
+				break;
+			}
+			extended.clear();
+			for (int slot = 0; slot < beam.size(); slot++) {
+				int hypothesis = beam.idAt(slot);
+				double score = beam.scoreAt(slot);
+				if (score <= results.threshold()) {
+					continue;
+				}
+				ProbabilityDistribution<String> successors = mc.get(words[hypothesis]);
+				if (successors == null) {
+					// a word without successors ends the walk
+					results.offer(score, hypothesis);
+					continue;
+				}
+				double logTotal = Math.log(successors.getTotal());
+				boolean last = length == maxWords;
+				successors.forEachCount((word, count) -> {
+					double next = score + Math.log(count) - logTotal;
+					if (word == null) {
+						results.offer(next, hypothesis);
+					} else if (!last && next > results.threshold() && next > extended.threshold()) {
+						extended.offer(next, addHypothesis(word, hypothesis));
+					}
+				});
+			}
+		}
+
+		List<ScoredSentence> sentences = new ArrayList<ScoredSentence>(results.size());
+		for (int slot : results.slotsByScore()) {
+			LinkedList<String> sentence = new LinkedList<String>();
+			for (int h = results.idAt(slot); h >= 0; h = parents[h]) {
+				sentence.addFirst(words[h]);
+			}
+			sentences.add(new ScoredSentence(sentence, results.scoreAt(slot)));
+		}
+		return sentences;
+	}
+
+	private int addHypothesis(String word, int parent) {
+		if (hypotheses == words.length) {
+			words = Arrays.copyOf(words, hypotheses * 2);
+			parents = Arrays.copyOf(parents, hypotheses * 2);
+		}
+		words[hypotheses] = word;
+		parents[hypotheses] = parent;
+		return hypotheses++;
+	}
+}
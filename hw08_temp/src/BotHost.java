@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A BotHost runs many TwitterBots (e.g. one per account) in the same JVM. All
+ * of its bots look their words up in a single shared Vocabulary, so a word
+ * common to many corpora is stored as one String instead of one per bot, and
+ * each bot only keeps its own transition counts.
+ *
+ * Bots are registered by name with the CSV file or model snapshot they are
+ * made from, and are only trained (or loaded) the first time they are asked
+ * for. When more than maxLoaded bots are in memory, the one used least
+ * recently is unloaded, and is loaded again the next time it is needed. Loaded
+ * chains are frozen (see MarkovChain.freeze) to save more memory.
+ *
+ * Words stay in the Vocabulary after every bot using them is unloaded, since
+ * the ids of a Vocabulary never change.
+ *
+ * A BotHost may be used from several threads at once. Bots are loaded outside
+ * of the host's lock: callers asking for a bot that is being loaded wait for
+ * that one load to finish, and the other callers are not held up.
+ */
+public class BotHost {
+
+	private final Vocabulary vocabulary = new Vocabulary();
+	private final int maxLoaded;
+
+	private final Map<String, Source> sources = new LinkedHashMap<String, Source>();
+	// in order of last use, least recently used first
+	private final LinkedHashMap<String, TwitterBot> loaded = new LinkedHashMap<String, TwitterBot>(16, 0.75f,
+			true);
+	// the bots being loaded, shared by every caller asking for them meanwhile
+	private final Map<String, FutureTask<TwitterBot>> loading = new HashMap<String, FutureTask<TwitterBot>>();
+
+	/**
+	 * Where a bot is loaded from: a CSV file (tweetColumn >= 0) or a model
+	 * snapshot (tweetColumn < 0).
+	 */
+	private static final class Source {
+		final String file;
+		final int tweetColumn;
+
+		Source(String file, int tweetColumn) {
+			this.file = file;
+			this.tweetColumn = tweetColumn;
+		}
+	}
+
+	/**
+	 * Creates a BotHost that keeps every bot in memory once it is loaded.
+	 */
+	public BotHost() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxLoaded - the largest number of bots kept in memory at once
+	 * @throws IllegalArgumentException if maxLoaded is less than 1
+	 */
+	public BotHost(int maxLoaded) {
+		if (maxLoaded < 1) {
+			throw new IllegalArgumentException("maxLoaded must be positive");
+		}
+		this.maxLoaded = maxLoaded;
+	}
+
+	/**
+	 * @return the Vocabulary shared by all of the bots of this host
+	 */
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * Registers a bot trained on the tweets of a CSV file. The file is only read
+	 * when the bot is first asked for.
+	 *
+	 * @param name        - the (non-null) name of the bot
+	 * @param csvFile     - the (non-null) path to a CSV file containing tweet data
+	 * @param tweetColumn - the column in that CSV where the text of the tweet
+	 *                    itself is stored
+	 * @throws IllegalArgumentException if an argument is invalid or a bot with
+	 *                                  that name is already registered
+	 */
+	public synchronized void addCsv(String name, String csvFile, int tweetColumn) {
+		if (csvFile == null || tweetColumn < 0) {
+			throw new IllegalArgumentException("invalid CSV file or column");
+		}
+		add(name, new Source(csvFile, tweetColumn));
+	}
+
+	/**
+	 * Registers a bot using a model saved as a ModelSnapshot. The file is only
+	 * read when the bot is first asked for.
+	 *
+	 * @param name      - the (non-null) name of the bot
+	 * @param modelFile - the (non-null) path of the snapshot file
+	 * @throws IllegalArgumentException if an argument is null or a bot with that
+	 *                                  name is already registered
+	 */
+	public synchronized void addModel(String name, String modelFile) {
+		if (modelFile == null) {
+			throw new IllegalArgumentException("modelFile cannot be null");
+		}
+		add(name, new Source(modelFile, -1));
+	}
+
+	private void add(String name, Source source) {
+		if (name == null) {
+			throw new IllegalArgumentException("name cannot be null");
+		}
+		if (sources.containsKey(name)) {
+			throw new IllegalArgumentException("a bot named " + name + " is already registered");
+		}
+		sources.put(name, source);
+	}
+
+	/**
+	 * Unloads and unregisters a bot.
+	 *
+	 * @param name - the name of the bot
+	 * @return true if a bot with that name was registered
+	 */
+	public synchronized boolean remove(String name) {
+		loaded.remove(name);
+		loading.remove(name);
+		return sources.remove(name) != null;
+	}
+
+	/**
+	 * Returns the bot with the given name, loading it first if it is not in
+	 * memory (which may unload the least recently used bot).
+	 *
+	 * @param name - the name of the bot
+	 * @return the TwitterBot with that name
+	 * @throws IllegalArgumentException if no bot with that name is registered, or
+	 *                                  its CSV file doesn't exist
+	 * @throws IOException              if its model snapshot cannot be read, or
+	 *                                  the thread is interrupted while waiting
+	 *                                  for another caller to load the bot
+	 */
+	public TwitterBot get(String name) throws IOException {
+		FutureTask<TwitterBot> task;
+		boolean loader = false;
+		synchronized (this) {
+			TwitterBot bot = loaded.get(name);
+			if (bot != null) {
+				return bot;
+			}
+			task = loading.get(name);
+			if (task == null) {
+				Source source = sources.get(name);
+				if (source == null) {
+					throw new IllegalArgumentException("no bot named " + name);
+				}
+				task = new FutureTask<TwitterBot>(() -> load(source));
+				loading.put(name, task);
+				loader = true;
+			}
+		}
+		if (!loader) {
+			return await(task);
+		}
+		task.run();
+		TwitterBot bot = null;
+		try {
+			bot = await(task);
+			return bot;
+		} finally {
+			synchronized (this) {
+				// unless the bot was removed while it was loading
+				if (loading.remove(name, task) && bot != null) {
+					while (loaded.size() >= maxLoaded) {
+						loaded.remove(loaded.keySet().iterator().next());
+					}
+					loaded.put(name, bot);
+				}
+			}
+		}
+	}
+
+	private TwitterBot load(Source source) throws IOException {
+		NumberGenerator ng = new RandomNumberGenerator();
+		TwitterBot bot;
+		if (source.tweetColumn >= 0) {
+			bot = new TwitterBot(source.file, source.tweetColumn, ng,
+					new TrainingOptions().vocabulary(vocabulary));
+		} else {
+			bot = TwitterBot.load(source.file, ng, vocabulary);
+		}
+		bot.mc.freeze();
+		return bot;
+	}
+
+	/**
+	 * @return the bot loaded by task, which has run or is running in another
+	 *         thread, rethrowing what the load threw
+	 */
+	private static TwitterBot await(FutureTask<TwitterBot> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a bot to load");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Drops a bot from memory. It stays registered, and is loaded again the next
+	 * time it is asked for.
+	 *
+	 * @param name - the name of the bot
+	 * @return true if the bot was in memory
+	 */
+	public synchronized boolean unload(String name) {
+		return loaded.remove(name) != null;
+	}
+
+	/**
+	 * @param name - the name of a bot
+	 * @return true if the bot is in memory
+	 */
+	public synchronized boolean isLoaded(String name) {
+		return loaded.containsKey(name);
+	}
+
+	/**
+	 * @return the number of bots in memory
+	 */
+	public synchronized int loadedCount() {
+		return loaded.size();
+	}
+
+	/**
+	 * @return the sorted names of the registered bots
+	 */
+	public synchronized Set<String> names() {
+		return Collections.unmodifiableSet(new TreeSet<String>(sources.keySet()));
+	}
+}
@@ -0,0 +1,144 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads and writes the frequency information of a MarkovChain (its start words
+ * and bigram counts) in a compact binary form. A chain written this way is
+ * usually a "delta": a small chain trained on just the sentences seen since the
+ * last write, which is later merged into a full chain with readInto().
+ *
+ * The format is:
+ *
+ * - the number of distinct start words, then each start word and its count
+ *
+ * - for every state, a true marker, the state, its number of distinct
+ * successors and each successor and its count (a successor is written as a
+ * boolean saying whether it is non-null, followed by the word if it is)
+ *
+ * - a false marker once all the states have been written
+ */
+class ChainDelta {
+
+	private ChainDelta() {
+	}
+
+	/**
+	 * Writes the start words and bigram counts of delta to out.
+	 *
+	 * @param delta - the MarkovChain to write
+	 * @param out   - where to write it
+	 * @throws IOException if out cannot be written to
+	 */
+	static void write(MarkovChain delta, DataOutput out) throws IOException {
+		out.writeInt(delta.startWords.keySet().size());
+		writeCounts(delta.startWords, out);
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : delta.chain.entrySet()) {
+			out.writeBoolean(true);
+			out.writeUTF(e.getKey());
+			out.writeInt(e.getValue().keySet().size());
+			writeCounts(e.getValue(), out);
+		}
+		out.writeBoolean(false);
+	}
+
+	/**
+	 * Reads a chain written by write() and adds its counts to target.
+	 *
+	 * @param in     - where to read the delta from
+	 * @param target - the MarkovChain to add the counts to
+	 * @throws IOException if the delta cannot be read or is malformed
+	 */
+	static void readInto(DataInput in, MarkovChain target) throws IOException {
+		readInto(in, target, null);
+	}
+
+	/**
+	 * Does the same as readInto(in, target), but stores the Vocabulary's own
+	 * String for each word (adding the words it does not have yet), so that the
+	 * words are shared with the other chains using that Vocabulary.
+	 *
+	 * @param in         - where to read the delta from
+	 * @param target     - the MarkovChain to add the counts to
+	 * @param vocabulary - the Vocabulary to look the words up in, or null to
+	 *                   keep the Strings as read
+	 * @throws IOException if the delta cannot be read or is malformed
+	 */
+	static void readInto(DataInput in, MarkovChain target, Vocabulary vocabulary) throws IOException {
+		int starts = readSize(in);
+		for (int i = 0; i < starts; i++) {
+			String word = readWord(in, vocabulary);
+			if (word == null) {
+				throw new IOException("start word cannot be null");
+			}
+			target.startWords.record(word, readCount(in));
+		}
+		while (in.readBoolean()) {
+			String first = intern(in.readUTF(), vocabulary);
+			int successors = readSize(in);
+			for (int i = 0; i < successors; i++) {
+				String second = readWord(in, vocabulary);
+				target.addBigram(first, second, readCount(in));
+			}
+		}
+	}
+
+	private static void writeCounts(ProbabilityDistribution<String> pd, DataOutput out) throws IOException {
+		IOException[] failure = new IOException[1];
+		pd.forEachCount((word, count) -> {
+			if (failure[0] != null) {
+				return;
+			}
+			try {
+				writeWord(word, out);
+				out.writeInt(count);
+			} catch (IOException e) {
+				failure[0] = e;
+			}
+		});
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+	}
+
+	/**
+	 * Writes a successor (or start word) as in the format above: whether it is
+	 * non-null, followed by the word if it is.
+	 */
+	static void writeWord(String word, DataOutput out) throws IOException {
+		out.writeBoolean(word != null);
+		if (word != null) {
+			out.writeUTF(word);
+		}
+	}
+
+	static String readWord(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static String readWord(DataInput in, Vocabulary vocabulary) throws IOException {
+		String word = readWord(in);
+		return word == null ? null : intern(word, vocabulary);
+	}
+
+	private static String intern(String word, Vocabulary vocabulary) {
+		return vocabulary == null ? word : vocabulary.word(vocabulary.id(word));
+	}
+
+	private static int readSize(DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			throw new IOException("malformed chain delta");
+		}
+		return size;
+	}
+
+	private static int readCount(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count <= 0) {
+			throw new IOException("malformed chain delta");
+		}
+		return count;
+	}
+}
@@ -0,0 +1,259 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A ChainScorer measures how well text fits a trained MarkovChain, e.g. to rank
+ * candidate tweets (written by people or generated) by how much they sound like
+ * the corpus the chain was trained on.
+ *
+ * Text is cleaned and split into sentences exactly like training data (see
+ * TweetParser.parseAndCleanTweet). The probability of a sentence w1 ... wn is
+ * P(w1 | start) * P(w2 | w1) * ... * P(end | wn), and the probability of a text
+ * is the product of the probabilities of its sentences.
+ *
+ * Bigrams that never appeared in the training data would make the probability
+ * of almost any new text zero, so probabilities are smoothed with additive
+ * (Lidstone) smoothing: P(b | a) = (count(a, b) + alpha) / (count(a) + alpha *
+ * V), where V is the number of distinct words plus one for the end of a
+ * sentence. An alpha of 0 disables smoothing, 1 is Laplace smoothing, and small
+ * values like 0.01 usually work best. Without smoothing, any text with an
+ * unseen bigram or word has probability 0; with it, a word that never appeared
+ * at all is given probability 1 / V after any word.
+ *
+ * All of the log-probabilities are computed when the ChainScorer is created,
+ * into flat arrays of primitives: every word gets an id, and the successors of
+ * each word are kept sorted by id next to their log-probabilities, so scoring
+ * a bigram takes a binary search over the successors of one word and no
+ * boxing. A ChainScorer is a snapshot of the chain at that time: training the
+ * chain afterward does not change it, and it may be used from many threads at
+ * once. It should be created while the chain is not being trained (see
+ * TwitterBot.scorer).
+ */
+public class ChainScorer {
+
+	// the id of every word (from 0), in any order
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	// the successors of word a are successors[first[a]] to successors[first[a +
+	// 1] - 1], sorted, with -1 for the end of a sentence and the log-probability
+	// of successors[i] in logProbabilities[i]
+	private final int[] first;
+	private final int[] successors;
+	private final double[] logProbabilities;
+	// the log-probability of a successor of word a that is not in its successors,
+	// or of any word after a word that has no successors at all
+	private final double[] unseenLogProbabilities;
+	private final double[] startLogProbabilities;
+	private final double unseenStartLogProbability;
+	private final double unknownLogProbability;
+
+	/**
+	 * Computes the log-probability tables of mc.
+	 *
+	 * @param mc    - the (non-null) trained MarkovChain
+	 * @param alpha - the smoothing constant added to every bigram count
+	 * @throws IllegalArgumentException if mc is null or alpha is negative
+	 */
+	public ChainScorer(MarkovChain mc, double alpha) {
+		if (mc == null) {
+			throw new IllegalArgumentException("MarkovChain cannot be null");
+		}
+		if (!(alpha >= 0)) {
+			throw new IllegalArgumentException("alpha cannot be negative");
+		}
+		long bigrams = 0;
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : mc.chain.entrySet()) {
+			addWord(e.getKey());
+			e.getValue().forEachCount((word, count) -> addWord(word));
+			bigrams += e.getValue().keySet().size();
+		}
+		mc.startWords.forEachCount((word, count) -> addWord(word));
+		if (bigrams > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many bigrams to score");
+		}
+		int words = ids.size();
+		double outcomes = words + 1;
+		this.unknownLogProbability = alpha == 0 ? Double.NEGATIVE_INFINITY : -Math.log(outcomes);
+
+		this.startLogProbabilities = new double[words];
+		double startLogDenominator = Math.log(mc.startWords.getTotal() + alpha * outcomes);
+		this.unseenStartLogProbability = Math.log(alpha) - startLogDenominator;
+		Arrays.fill(startLogProbabilities, unseenStartLogProbability);
+		mc.startWords.forEachCount((word, count) -> {
+			if (word != null) {
+				startLogProbabilities[ids.get(word)] = Math.log(count + alpha) - startLogDenominator;
+			}
+		});
+
+		// the successors of each word are packed as (id << 32 | count) so that
+		// sorting them sorts them by id
+		long[][] packed = new long[words][];
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : mc.chain.entrySet()) {
+			ProbabilityDistribution<String> pd = e.getValue();
+			long[] row = new long[pd.keySet().size()];
+			int[] n = { 0 };
+			pd.forEachCount((word, count) -> row[n[0]++] = (long) id(word) << 32 | count);
+			Arrays.sort(row);
+			packed[ids.get(e.getKey())] = row;
+		}
+		this.first = new int[words + 1];
+		this.successors = new int[(int) bigrams];
+		this.logProbabilities = new double[(int) bigrams];
+		this.unseenLogProbabilities = new double[words];
+		int next = 0;
+		for (int a = 0; a < words; a++) {
+			first[a] = next;
+			long[] row = packed[a];
+			if (row == null) {
+				unseenLogProbabilities[a] = unknownLogProbability;
+				continue;
+			}
+			long total = 0;
+			for (long bigram : row) {
+				total += (int) bigram;
+			}
+			double logDenominator = Math.log(total + alpha * outcomes);
+			unseenLogProbabilities[a] = Math.log(alpha) - logDenominator;
+			for (long bigram : row) {
+				successors[next] = (int) (bigram >> 32);
+				logProbabilities[next] = Math.log((int) bigram + alpha) - logDenominator;
+				next++;
+			}
+		}
+		first[words] = next;
+	}
+
+	private void addWord(String word) {
+		if (word != null) {
+			ids.putIfAbsent(word, ids.size());
+		}
+	}
+
+	/**
+	 * @return the id of word, -1 for the end of a sentence (null), or -2 for a
+	 *         word that the chain has never seen
+	 */
+	private int id(String word) {
+		if (word == null) {
+			return -1;
+		}
+		Integer id = ids.get(word);
+		return id == null ? -2 : id;
+	}
+
+	/**
+	 * Scores one sentence that has already been cleaned and split into words.
+	 *
+	 * @param sentence - the (non-null, non-empty) words of the sentence
+	 * @return the score of the sentence
+	 * @throws IllegalArgumentException if sentence is null or empty
+	 */
+	public TextScore scoreSentence(List<String> sentence) {
+		if (sentence == null || sentence.isEmpty()) {
+			throw new IllegalArgumentException("sentence cannot be null or empty");
+		}
+		return new TextScore(sentenceLogLikelihood(sentence), sentence.size() + 1);
+	}
+
+	/**
+	 * Scores a piece of text, such as a tweet. The text is cleaned and split into
+	 * sentences like training data, and the score covers all of its sentences.
+	 *
+	 * @param text - the (non-null) text to score
+	 * @return the score of the text (with no predictions if it has no words)
+	 * @throws IllegalArgumentException if text is null
+	 */
+	public TextScore score(String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("text cannot be null");
+		}
+		double logLikelihood = 0;
+		int predictions = 0;
+		for (List<String> sentence : TweetParser.parseAndCleanTweet(text)) {
+			logLikelihood += sentenceLogLikelihood(sentence);
+			predictions += sentence.size() + 1;
+		}
+		return new TextScore(logLikelihood, predictions);
+	}
+
+	private double sentenceLogLikelihood(List<String> sentence) {
+		int previous = id(sentence.get(0));
+		double logLikelihood = startLogProbability(previous);
+		for (int i = 1; i < sentence.size(); i++) {
+			int id = id(sentence.get(i));
+			logLikelihood += logProbability(previous, id);
+			previous = id;
+		}
+		return logLikelihood + logProbability(previous, -1);
+	}
+
+	private double startLogProbability(int id) {
+		return id >= 0 ? startLogProbabilities[id] : unseenStartLogProbability;
+	}
+
+	/**
+	 * @return the log-probability of the word with id second after the word with
+	 *         id first (see id())
+	 */
+	private double logProbability(int first, int second) {
+		if (first < 0) {
+			return unknownLogProbability;
+		}
+		if (second >= -1) {
+			int i = Arrays.binarySearch(successors, this.first[first], this.first[first + 1], second);
+			if (i >= 0) {
+				return logProbabilities[i];
+			}
+		}
+		return unseenLogProbabilities[first];
+	}
+
+	/**
+	 * Scores many texts in parallel, using all available processors.
+	 *
+	 * @param texts - the (non-null) texts to score
+	 * @return the score of each text, in the same order
+	 */
+	public List<TextScore> scoreAll(List<String> texts) {
+		return texts.parallelStream().map(this::score).collect(Collectors.toList());
+	}
+
+	/**
+	 * Scores the texts in one column of a CSV file and writes one line per input
+	 * line to the output file, holding the log-likelihood and the perplexity
+	 * separated by a tab. Lines without that column get a score with no
+	 * predictions. The input is read and scored in chunks, so files of any size
+	 * can be scored without holding them in memory.
+	 *
+	 * @param pathToCSVFile - a path to the CSV file containing the texts
+	 * @param column        - the column of the CSV file that contains the text
+	 * @param outputPath    - the path of the file to write the scores to
+	 * @throws IOException              if the output file cannot be written
+	 * @throws IllegalArgumentException if pathToCSVFile is null or the file
+	 *                                  doesn't exist
+	 */
+	public void scoreFile(String pathToCSVFile, int column, String outputPath) throws IOException {
+		final int chunkSize = 1 << 16;
+		FileLineIterator lines = new FileLineIterator(pathToCSVFile);
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(outputPath))) {
+			List<String> chunk = new ArrayList<String>(chunkSize);
+			while (lines.hasNext()) {
+				String text = TweetParser.extractColumn(lines.next(), column);
+				chunk.add(text == null ? "" : text);
+				if (chunk.size() == chunkSize || !lines.hasNext()) {
+					for (TextScore score : scoreAll(chunk)) {
+						out.write(score.toString());
+						out.newLine();
+					}
+					chunk.clear();
+				}
+			}
+		}
+	}
+}
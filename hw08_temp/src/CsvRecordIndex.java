@@ -0,0 +1,352 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A CsvRecordIndex knows where every record of a CSV file starts, so that any
+ * record can be read directly (e.g. to train on a random sample or on a slice
+ * of a large file, or to split a file between several workers) without reading
+ * the file from the start.
+ *
+ * Records are split on line terminators ('\n', '\r' or "\r\n") that are not
+ * inside a quoted field, so a tweet spanning several lines is one record.
+ * Empty lines are not records.
+ *
+ * The index is saved in a file chosen by the caller (by default, in a cache
+ * directory under java.io.tmpdir, never next to the CSV file), and reused as
+ * long as the CSV file keeps the same size and modification time. Otherwise it
+ * is rebuilt in a single pass over the file. If the index file cannot be
+ * written, the index is simply kept in memory.
+ *
+ * Records are read with positional reads, so a CsvRecordIndex may be used from
+ * several threads at once. It should be closed once it is no longer needed.
+ */
+public class CsvRecordIndex implements Closeable {
+
+	private static final int MAGIC = 0x4353564e; // "CSVN"
+
+	private final FileChannel channel;
+	// offsets[n] is where record n starts, and offsets[size] is the end of the
+	// file; ends[n] is where record n's text ends (before its terminator)
+	private final long[] offsets;
+	private final long[] ends;
+
+	private CsvRecordIndex(FileChannel channel, long[] offsets, long[] ends) {
+		this.channel = channel;
+		this.offsets = offsets;
+		this.ends = ends;
+	}
+
+	/**
+	 * Opens the index of the CSV file located at csvPath, kept in the default
+	 * cache directory (see cachePath).
+	 *
+	 * @param csvPath - the path to the CSV file
+	 * @return the index of the file
+	 * @throws IllegalArgumentException if csvPath is null or the file doesn't
+	 *                                  exist
+	 * @throws UncheckedIOException     if the file cannot be read
+	 */
+	public static CsvRecordIndex open(String csvPath) {
+		if (csvPath == null || !new File(csvPath).isFile()) {
+			throw new IllegalArgumentException("File not found");
+		}
+		return open(csvPath, cachePath(csvPath));
+	}
+
+	/**
+	 * Opens the index of the CSV file located at csvPath, building it (and saving
+	 * it to indexPath for next time) if indexPath holds no up to date index yet.
+	 *
+	 * @param csvPath   - the path to the CSV file
+	 * @param indexPath - the path of the index file, or null to build the index
+	 *                  in memory without saving it
+	 * @return the index of the file
+	 * @throws IllegalArgumentException if csvPath is null or the file doesn't
+	 *                                  exist
+	 * @throws UncheckedIOException     if the file cannot be read
+	 */
+	public static CsvRecordIndex open(String csvPath, String indexPath) {
+		if (csvPath == null || !new File(csvPath).isFile()) {
+			throw new IllegalArgumentException("File not found");
+		}
+		File csv = new File(csvPath);
+		File indexFile = indexPath == null ? null : new File(indexPath);
+		try {
+			long size = csv.length();
+			long modified = csv.lastModified();
+			long[][] index = indexFile == null ? null : load(indexFile, size, modified);
+			if (index == null) {
+				index = build(csv);
+				if (indexFile != null) {
+					save(indexFile, size, modified, index);
+				}
+			}
+			FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ);
+			return new CsvRecordIndex(channel, index[0], index[1]);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns where open(csvPath) keeps the index of a CSV file: a file in the
+	 * "twitterbot-index" directory of java.io.tmpdir, named after the CSV file
+	 * and a hash of its absolute path so that files with the same name in
+	 * different directories get different indexes.
+	 *
+	 * @param csvPath - the (non-null) path to the CSV file
+	 * @return the path of its index file in the cache directory
+	 */
+	static String cachePath(String csvPath) {
+		File csv = new File(csvPath).getAbsoluteFile();
+		File directory = new File(System.getProperty("java.io.tmpdir"), "twitterbot-index");
+		String name = csv.getName() + "-" + Integer.toHexString(csv.getPath().hashCode()) + ".idx";
+		return new File(directory, name).getPath();
+	}
+
+	/**
+	 * @return the saved offsets and ends, or null if the index file is missing,
+	 *         unreadable or out of date
+	 */
+	private static long[][] load(File indexFile, long size, long modified) {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readLong() != size || in.readLong() != modified) {
+				return null;
+			}
+			int records = in.readInt();
+			long[] offsets = new long[records + 1];
+			long[] ends = new long[records];
+			for (int n = 0; n < records; n++) {
+				offsets[n] = in.readLong();
+				ends[n] = in.readLong();
+			}
+			offsets[records] = size;
+			return new long[][] { offsets, ends };
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void save(File indexFile, long size, long modified, long[][] index) {
+		long[] offsets = index[0];
+		long[] ends = index[1];
+		File directory = indexFile.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			return;
+		}
+		File temporary = new File(indexFile.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeLong(size);
+			out.writeLong(modified);
+			out.writeInt(ends.length);
+			for (int n = 0; n < ends.length; n++) {
+				out.writeLong(offsets[n]);
+				out.writeLong(ends[n]);
+			}
+		} catch (IOException e) {
+			temporary.delete();
+			return;
+		}
+		// readers never see a half-written index
+		if (!temporary.renameTo(indexFile)) {
+			temporary.delete();
+		}
+	}
+
+	/**
+	 * Finds the records of the file in a single pass, keeping track of whether
+	 * each byte is inside a quoted field. Only a quote at the start of a field
+	 * opens a quoted field, so a stray quote inside an unquoted field (like 5"
+	 * tall) does not swallow the rest of the file. A doubled quote inside a
+	 * quoted field closes it and opens it again right away.
+	 */
+	private static long[][] build(File csv) throws IOException {
+		long[] offsets = new long[1024];
+		long[] ends = new long[1024];
+		int records = 0;
+		byte[] buffer = new byte[1 << 16];
+		long position = 0;
+		long start = 0;
+		boolean quoted = false;
+		boolean justClosed = false;
+		byte previous = 0;
+		boolean afterCarriageReturn = false;
+		try (InputStream in = new FileInputStream(csv)) {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				for (int i = 0; i < n; i++, position++) {
+					byte b = buffer[i];
+					boolean closing = false;
+					if (afterCarriageReturn) {
+						afterCarriageReturn = false;
+						if (b == '\n') {
+							start = position + 1;
+							previous = b;
+							continue;
+						}
+					}
+					if (quoted) {
+						if (b == '"') {
+							quoted = false;
+							closing = true;
+						}
+					} else if (b == '"') {
+						quoted = position == start || previous == ',' || justClosed;
+					} else if (b == '\n' || b == '\r') {
+						if (position > start) {
+							if (records == ends.length) {
+								offsets = Arrays.copyOf(offsets, records * 2);
+								ends = Arrays.copyOf(ends, records * 2);
+							}
+							offsets[records] = start;
+							ends[records] = position;
+							records++;
+						}
+						afterCarriageReturn = b == '\r';
+						start = position + 1;
+					}
+					justClosed = closing;
+					previous = b;
+				}
+			}
+		}
+		if (position > start) {
+			if (records == ends.length) {
+				offsets = Arrays.copyOf(offsets, records + 1);
+				ends = Arrays.copyOf(ends, records + 1);
+			}
+			offsets[records] = start;
+			ends[records] = position;
+			records++;
+		}
+		offsets = Arrays.copyOf(offsets, records + 1);
+		offsets[records] = position;
+		return new long[][] { offsets, Arrays.copyOf(ends, records) };
+	}
+
+	/**
+	 * @return the number of records in the file
+	 */
+	public int size() {
+		return ends.length;
+	}
+
+	/**
+	 * @param n - the number of a record, from 0 to size() - 1, or size() for the
+	 *          end of the file
+	 * @return the byte offset in the file where record n starts
+	 * @throws IllegalArgumentException if there is no record n
+	 */
+	public long offset(int n) {
+		if (n < 0 || n > ends.length) {
+			throw new IllegalArgumentException("no record " + n);
+		}
+		return offsets[n];
+	}
+
+	/**
+	 * Reads one record of the file.
+	 *
+	 * @param n - the number of a record, from 0 to size() - 1
+	 * @return the text of record n, without its final line terminator (but with
+	 *         those inside its quoted fields)
+	 * @throws IllegalArgumentException if there is no record n
+	 * @throws UncheckedIOException     if the file cannot be read
+	 */
+	public String record(int n) {
+		if (n < 0 || n >= ends.length) {
+			throw new IllegalArgumentException("no record " + n);
+		}
+		ByteBuffer bytes = ByteBuffer.allocate((int) (ends[n] - offsets[n]));
+		try {
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes, offsets[n] + bytes.position()) < 0) {
+					throw new IOException("file is shorter than its index");
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(bytes.array(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a range of records of the file.
+	 *
+	 * @param from - the number of the first record to read
+	 * @param to   - the number just past the last record to read
+	 * @return the records from from to to - 1, in order
+	 * @throws IllegalArgumentException if the range is not within the file
+	 */
+	public List<String> records(int from, int to) {
+		if (from < 0 || to > ends.length || from > to) {
+			throw new IllegalArgumentException("invalid range of records");
+		}
+		List<String> records = new ArrayList<String>(to - from);
+		for (int n = from; n < to; n++) {
+			records.add(record(n));
+		}
+		return records;
+	}
+
+	/**
+	 * Picks a random sample of distinct records (with Floyd's algorithm, which
+	 * takes time proportional to the size of the sample, not of the file).
+	 *
+	 * @param count - the number of records to pick (at most size())
+	 * @param ng    - the NumberGenerator used to pick them
+	 * @return the numbers of the records picked, in increasing order
+	 * @throws IllegalArgumentException if count is negative or more than size()
+	 */
+	public int[] sample(int count, NumberGenerator ng) {
+		if (count < 0 || count > ends.length) {
+			throw new IllegalArgumentException("count must be between 0 and the number of records");
+		}
+		Set<Integer> picked = new HashSet<Integer>();
+		for (int j = ends.length - count; j < ends.length; j++) {
+			int n = ng.next(j + 1);
+			if (!picked.add(n)) {
+				picked.add(j);
+			}
+		}
+		int[] sample = new int[count];
+		int i = 0;
+		for (int n : picked) {
+			sample[i++] = n;
+		}
+		Arrays.sort(sample);
+		return sample;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A CsvRowFilter selects the rows of a CSV file to train on by the contents of
+ * some of their columns, e.g. only the tweets of one author or of a date range
+ * (see TweetParser.csvFileToTrainingData).
+ *
+ * The filter is checked on the raw line, before the tweet is extracted or
+ * cleaned, and only the columns it tests are extracted, so the rows it rejects
+ * cost little more than reading them. Columns are numbered and split on commas
+ * just like in TweetParser.extractColumn(). A row that does not have one of
+ * the tested columns is rejected.
+ *
+ * CsvRowFilters are immutable: where() returns a new filter that also checks
+ * the given column.
+ */
+public final class CsvRowFilter {
+
+	/**
+	 * A filter that accepts every row.
+	 */
+	public static final CsvRowFilter ALL = new CsvRowFilter();
+
+	// sorted by column, so that a row is scanned only once
+	private final int[] columns;
+	private final List<Predicate<String>> predicates;
+
+	private CsvRowFilter() {
+		this(new int[0], Collections.<Predicate<String>>emptyList());
+	}
+
+	private CsvRowFilter(int[] columns, List<Predicate<String>> predicates) {
+		this.columns = columns;
+		this.predicates = predicates;
+	}
+
+	/**
+	 * @param column    - the column to test
+	 * @param predicate - the (non-null) test the contents of the column must pass
+	 * @return a filter accepting the rows accepted by this one whose column also
+	 *         passes predicate
+	 * @throws IllegalArgumentException if column is negative or predicate is null
+	 */
+	public CsvRowFilter where(int column, Predicate<String> predicate) {
+		if (column < 0 || predicate == null) {
+			throw new IllegalArgumentException("column cannot be negative and predicate cannot be null");
+		}
+		int at = 0;
+		while (at < columns.length && columns[at] <= column) {
+			at++;
+		}
+		int[] newColumns = new int[columns.length + 1];
+		List<Predicate<String>> newPredicates = new ArrayList<Predicate<String>>(predicates);
+		System.arraycopy(columns, 0, newColumns, 0, at);
+		newColumns[at] = column;
+		newPredicates.add(at, predicate);
+		System.arraycopy(columns, at, newColumns, at + 1, columns.length - at);
+		return new CsvRowFilter(newColumns, newPredicates);
+	}
+
+	/**
+	 * @param column - the column to test, such as the author's
+	 * @param value  - the (non-null) contents the column must have
+	 * @return a filter accepting the rows accepted by this one whose column is
+	 *         exactly value
+	 */
+	public CsvRowFilter whereEquals(int column, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("value cannot be null");
+		}
+		return where(column, value::equals);
+	}
+
+	/**
+	 * Restricts a column to a range of values, compared as Strings. Timestamps
+	 * like "2019-10-09 22:26:06" (as in the files in files/) sort the same way as
+	 * the times they stand for, so this selects a date range.
+	 *
+	 * @param column - the column to test, such as the timestamp's
+	 * @param from   - the smallest value accepted, or null for no lower bound
+	 * @param to     - the value just past the largest value accepted (it is not
+	 *               accepted itself), or null for no upper bound
+	 * @return a filter accepting the rows accepted by this one whose column is
+	 *         between from and to
+	 */
+	public CsvRowFilter whereBetween(int column, String from, String to) {
+		return where(column, value -> (from == null || value.compareTo(from) >= 0)
+				&& (to == null || value.compareTo(to) < 0));
+	}
+
+	/**
+	 * @param csvLine - a line of a CSV file
+	 * @return true if every tested column of the line passes its test
+	 */
+	public boolean accepts(String csvLine) {
+		if (columns.length == 0) {
+			return true;
+		}
+		if (csvLine == null) {
+			return false;
+		}
+		int column = 0;
+		int start = 0;
+		for (int i = 0; i < columns.length; i++) {
+			while (column < columns[i]) {
+				int comma = csvLine.indexOf(',', start);
+				if (comma < 0) {
+					return false;
+				}
+				start = comma + 1;
+				column++;
+			}
+			int end = csvLine.indexOf(',', start);
+			if (!predicates.get(i).test(csvLine.substring(start, end < 0 ? csvLine.length() : end))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "CsvRowFilter on columns " + Arrays.toString(columns);
+	}
+}
@@ -0,0 +1,190 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DistributedTrainer trains a MarkovChain on a large CSV file with several
+ * worker processes at once.
+ *
+ * The coordinator splits the file into one byte range per worker, moving each
+ * boundary forward to the start of a line, and starts a JVM for every range
+ * (local processes standing in for the nodes of a cluster). Each worker reads
+ * only its own lines with an OffsetLineIterator, trains a partial chain on them
+ * with MarkovChain.train, and writes the partial chain to its standard output
+ * as a ChainDelta. The coordinator reads the deltas back and adds them all to
+ * one chain, which ends up with exactly the counts that training on the whole
+ * file would give.
+ *
+ * Workers train in parallel, and only the merge is done by the coordinator
+ * alone, so training time should drop almost linearly with the number of
+ * workers as long as there are cores for them.
+ */
+public class DistributedTrainer {
+
+	private DistributedTrainer() {
+	}
+
+	/**
+	 * Trains a TwitterBot on a CSV file with the given number of worker
+	 * processes.
+	 *
+	 * @param csvFile     - a path to a CSV file containing tweet data
+	 * @param tweetColumn - the column in that CSV where the text of the tweet
+	 *                    itself is stored
+	 * @param workers     - the number of worker processes to start
+	 * @param ng          - A NumberGenerator for the bot, also to be passed to
+	 *                    MarkovChain
+	 * @return the trained TwitterBot
+	 * @throws IllegalArgumentException if an argument is invalid or the file
+	 *                                  doesn't exist
+	 * @throws IOException              if a worker cannot be started or fails
+	 */
+	public static TwitterBot train(String csvFile, int tweetColumn, int workers, NumberGenerator ng)
+			throws IOException {
+		return new TwitterBot(trainChain(csvFile, tweetColumn, workers, ng), ng);
+	}
+
+	/**
+	 * Does the same as train(), but returns the trained MarkovChain.
+	 */
+	static MarkovChain trainChain(String csvFile, int tweetColumn, int workers, NumberGenerator ng)
+			throws IOException {
+		if (csvFile == null || !new File(csvFile).isFile()) {
+			throw new IllegalArgumentException("path to csv file is null or the file does not exist");
+		}
+		if (tweetColumn < 0 || workers < 1 || ng == null) {
+			throw new IllegalArgumentException("invalid training configuration");
+		}
+		long[] bounds = split(csvFile, workers);
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		List<Process> processes = new ArrayList<Process>();
+		try {
+			for (int i = 0; i < workers; i++) {
+				if (bounds[i] < bounds[i + 1]) {
+					ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+							DistributedTrainer.class.getName(), "--worker", csvFile, String.valueOf(tweetColumn),
+							String.valueOf(bounds[i]), String.valueOf(bounds[i + 1]));
+					builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+					processes.add(builder.start());
+				}
+			}
+			// the workers train at the same time, and only block on their output
+			// once they are done, so the deltas can be read one at a time
+			MarkovChain mc = new MarkovChain(ng);
+			for (Process process : processes) {
+				try (DataInputStream in = new DataInputStream(
+						new BufferedInputStream(process.getInputStream(), 1 << 16))) {
+					ChainDelta.readInto(in, mc);
+				}
+				int status = process.waitFor();
+				if (status != 0) {
+					throw new IOException("training worker exited with status " + status);
+				}
+			}
+			return mc;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for a training worker");
+		} finally {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Splits a file into parts byte ranges of about the same size, each starting
+	 * at the start of a line.
+	 *
+	 * @return parts + 1 offsets, the ith range going from offset i (inclusive) to
+	 *         offset i + 1 (exclusive)
+	 */
+	static long[] split(String filePath, int parts) throws IOException {
+		long[] bounds = new long[parts + 1];
+		try (RandomAccessFile file = new RandomAccessFile(filePath, "r")) {
+			long size = file.length();
+			bounds[parts] = size;
+			for (int i = 1; i < parts; i++) {
+				long bound = Math.max(bounds[i - 1], size / parts * i);
+				bounds[i] = bound < size ? nextLineStart(file, bound) : size;
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * @return the offset of the first line starting after offset, or the length
+	 *         of the file if there is none
+	 */
+	private static long nextLineStart(RandomAccessFile file, long offset) throws IOException {
+		byte[] buffer = new byte[8192];
+		long position = offset;
+		boolean afterCarriageReturn = false;
+		while (true) {
+			file.seek(position);
+			int read = file.read(buffer);
+			if (read <= 0) {
+				return position;
+			}
+			for (int i = 0; i < read; i++) {
+				if (afterCarriageReturn) {
+					return buffer[i] == '\n' ? position + i + 1 : position + i;
+				} else if (buffer[i] == '\n') {
+					return position + i + 1;
+				} else if (buffer[i] == '\r') {
+					afterCarriageReturn = true;
+				}
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * Trains a partial chain on the lines starting in [start, end) of a CSV file
+	 * and writes it to out as a ChainDelta.
+	 */
+	static void work(String csvFile, int tweetColumn, long start, long end, DataOutputStream out)
+			throws IOException {
+		MarkovChain partial = new MarkovChain();
+		try (OffsetLineIterator lines = new OffsetLineIterator(csvFile, start)) {
+			while (lines.offset() < end && lines.hasNext()) {
+				for (List<String> sentence : TweetParser.csvLineToTrainingData(lines.next(), tweetColumn)) {
+					partial.train(sentence.iterator());
+				}
+			}
+		}
+		ChainDelta.write(partial, out);
+		out.flush();
+	}
+
+	/**
+	 * Trains a model on a CSV file with several worker processes and saves it as
+	 * a ModelSnapshot (which can be loaded with TwitterBot.load()).
+	 *
+	 * Also the entry point of the workers, which are started with --worker.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 5 && args[0].equals("--worker")) {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+			work(args[1], Integer.parseInt(args[2]), Long.parseLong(args[3]), Long.parseLong(args[4]), out);
+			return;
+		}
+		if (args.length != 4) {
+			System.err.println("usage: java DistributedTrainer input.csv tweetColumn workers output.model");
+			System.exit(2);
+		}
+		MarkovChain mc = trainChain(args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+				new RandomNumberGenerator());
+		ModelSnapshot.save(mc, args[3]);
+	}
+}
@@ -0,0 +1,433 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An ExternalBigramCounter trains a model that is too large to fit in memory,
+ * by counting bigrams on disk, and writes it as a ModelSnapshot.
+ *
+ * Bigrams (a word and its successor, with null standing for the start of a
+ * sentence before a start word or for its end after the last word) are
+ * collected in a buffer of a fixed size. Whenever the buffer is full, it is
+ * sorted (see spill()), identical bigrams are counted, and the counts are written
+ * ("spilled") as a compressed run to a temporary directory. Once all of the
+ * training data has been added, the runs are merged (at most MERGE_FAN_IN at a
+ * time) into one sorted stream of counts, which is written straight to the
+ * snapshot file. Only the buffer (with one String per distinct word in it),
+ * one state's successors and a small read buffer per run are in memory at any
+ * time.
+ *
+ * The snapshot has the same counts as a MarkovChain trained on the same
+ * sentences, and can be loaded with TwitterBot.load().
+ */
+public class ExternalBigramCounter implements Closeable {
+
+	static final int MERGE_FAN_IN = 64;
+	private static final int IO_BUFFER = 1 << 16;
+
+	// orders words with null (the start or end of a sentence) first
+	private static final Comparator<String> WORDS = Comparator.nullsFirst(Comparator.naturalOrder());
+
+	private final File directory;
+	// the buffered bigrams, as the ids of their two words packed in a long
+	private final long[] pairs;
+	private int buffered = 0;
+	// the words of the buffered bigrams: ids start at 1, and 0 stands for null
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final List<String> words = new ArrayList<String>();
+	private final List<File> runs = new ArrayList<File>();
+
+	/**
+	 * @param directory   - the (existing) directory to spill runs to
+	 * @param bufferPairs - the number of bigrams to collect before spilling them
+	 * @throws IllegalArgumentException if directory is not a directory or
+	 *                                  bufferPairs is less than 1
+	 */
+	public ExternalBigramCounter(File directory, int bufferPairs) {
+		if (directory == null || !directory.isDirectory() || bufferPairs < 1) {
+			throw new IllegalArgumentException("invalid spill directory or buffer size");
+		}
+		this.directory = directory;
+		this.pairs = new long[bufferPairs];
+	}
+
+	/**
+	 * Adds the bigrams of one sentence, as MarkovChain.train() would.
+	 *
+	 * @param sentence - the (non-null) cleaned words of a sentence
+	 * @throws IOException if a run cannot be spilled
+	 */
+	public void train(List<String> sentence) throws IOException {
+		String previous = null;
+		for (String word : sentence) {
+			add(previous, word);
+			previous = word;
+		}
+		if (previous != null) {
+			add(previous, null);
+		}
+	}
+
+	/**
+	 * Adds the training data of every line of a CSV file, as
+	 * TweetParser.csvFileToTrainingData() would, without keeping it in memory.
+	 *
+	 * @param pathToCSVFile - a path to a CSV file containing tweets
+	 * @param tweetColumn   - the column of the CSV file that contains the tweet
+	 * @throws IOException              if a run cannot be spilled
+	 * @throws IllegalArgumentException if pathToCSVFile is null or the file
+	 *                                  doesn't exist
+	 */
+	public void trainFile(String pathToCSVFile, int tweetColumn) throws IOException {
+		FileLineIterator lines = new FileLineIterator(pathToCSVFile);
+		while (lines.hasNext()) {
+			for (List<String> sentence : TweetParser.csvLineToTrainingData(lines.next(), tweetColumn)) {
+				train(sentence);
+			}
+		}
+	}
+
+	private void add(String first, String second) throws IOException {
+		if (buffered == pairs.length) {
+			spill();
+		}
+		pairs[buffered++] = ((long) id(first) << 32) | id(second);
+	}
+
+	private int id(String word) {
+		if (word == null) {
+			return 0;
+		}
+		Integer id = ids.get(word);
+		if (id == null) {
+			words.add(word);
+			id = words.size();
+			ids.put(word, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Sorts the buffer and writes it, with identical bigrams counted, as a new
+	 * run. Only the distinct words are sorted as Strings: the ids in the buffer
+	 * are then replaced by the rank of their word, so that sorting the packed
+	 * longs sorts the bigrams by their words.
+	 */
+	private void spill() throws IOException {
+		if (buffered == 0) {
+			return;
+		}
+		String[] sorted = words.toArray(new String[words.size() + 1]);
+		// sorted[0] stays null, which sorts first
+		Arrays.sort(sorted, 0, words.size());
+		System.arraycopy(sorted, 0, sorted, 1, words.size());
+		sorted[0] = null;
+		int[] rank = new int[words.size() + 1];
+		for (int r = 1; r < sorted.length; r++) {
+			rank[ids.get(sorted[r])] = r;
+		}
+		for (int i = 0; i < buffered; i++) {
+			pairs[i] = ((long) rank[(int) (pairs[i] >>> 32)] << 32) | rank[(int) pairs[i]];
+		}
+		Arrays.sort(pairs, 0, buffered);
+
+		File run = File.createTempFile("bigrams", ".run", directory);
+		runs.add(run);
+		try (RunWriter out = new RunWriter(run)) {
+			int i = 0;
+			while (i < buffered) {
+				int j = i + 1;
+				while (j < buffered && pairs[j] == pairs[i]) {
+					j++;
+				}
+				out.accept(sorted[(int) (pairs[i] >>> 32)], sorted[(int) pairs[i]], j - i);
+				i = j;
+			}
+		}
+		ids.clear();
+		words.clear();
+		buffered = 0;
+	}
+
+	private static int compare(String first1, String second1, String first2, String second2) {
+		int c = WORDS.compare(first1, first2);
+		return c != 0 ? c : WORDS.compare(second1, second2);
+	}
+
+	/**
+	 * Merges all of the counts into a snapshot file located at filePath. The
+	 * counter is empty afterward.
+	 *
+	 * @param filePath - the path of the snapshot file to write
+	 * @throws IOException if the runs cannot be read or the file cannot be written
+	 */
+	public void writeModel(String filePath) throws IOException {
+		spill();
+		// merge in several passes if there are too many runs to open at once
+		while (runs.size() > MERGE_FAN_IN) {
+			List<File> group = new ArrayList<File>(runs.subList(0, MERGE_FAN_IN));
+			runs.subList(0, MERGE_FAN_IN).clear();
+			File merged = File.createTempFile("bigrams", ".run", directory);
+			try (RunWriter out = new RunWriter(merged)) {
+				merge(group, out);
+			}
+			delete(group);
+			runs.add(merged);
+		}
+		try (ModelWriter out = new ModelWriter(filePath)) {
+			merge(runs, out);
+		}
+		delete(runs);
+		runs.clear();
+	}
+
+	/**
+	 * Merges sorted runs into one sorted stream of counts, adding up the counts
+	 * of a bigram found in several runs.
+	 */
+	private static void merge(List<File> files, CountSink out) throws IOException {
+		PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(Math.max(1, files.size()),
+				(a, b) -> compare(a.first, a.second, b.first, b.second));
+		try {
+			for (File file : files) {
+				RunReader reader = new RunReader(file);
+				if (reader.advance()) {
+					queue.add(reader);
+				} else {
+					reader.close();
+				}
+			}
+			while (!queue.isEmpty()) {
+				RunReader head = queue.poll();
+				String first = head.first;
+				String second = head.second;
+				int count = head.count;
+				requeue(queue, head);
+				while (!queue.isEmpty() && compare(first, second, queue.peek().first, queue.peek().second) == 0) {
+					RunReader same = queue.poll();
+					count = Math.addExact(count, same.count);
+					requeue(queue, same);
+				}
+				out.accept(first, second, count);
+			}
+		} finally {
+			for (RunReader reader : queue) {
+				reader.close();
+			}
+		}
+	}
+
+	private static void requeue(PriorityQueue<RunReader> queue, RunReader reader) throws IOException {
+		if (reader.advance()) {
+			queue.add(reader);
+		} else {
+			reader.close();
+		}
+	}
+
+	private static void delete(List<File> files) {
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Deletes any runs that were not merged yet.
+	 */
+	@Override
+	public void close() {
+		delete(runs);
+		runs.clear();
+		buffered = 0;
+	}
+
+	private interface CountSink {
+		void accept(String first, String second, int count) throws IOException;
+	}
+
+	/**
+	 * Writes a run: for each bigram in order, a true marker, both words (in
+	 * ChainDelta's word format) and the count, then a false marker.
+	 */
+	private static class RunWriter implements CountSink, Closeable {
+		private final DataOutputStream out;
+
+		RunWriter(File file) throws IOException {
+			// buffered on both sides of the Deflater, which is slow on small writes
+			out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER)), IO_BUFFER));
+		}
+
+		@Override
+		public void accept(String first, String second, int count) throws IOException {
+			out.writeBoolean(true);
+			ChainDelta.writeWord(first, out);
+			ChainDelta.writeWord(second, out);
+			out.writeInt(count);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.writeBoolean(false);
+			out.close();
+		}
+	}
+
+	private static class RunReader implements Closeable {
+		private final DataInputStream in;
+		String first;
+		String second;
+		int count;
+
+		RunReader(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(
+					new BufferedInputStream(new FileInputStream(file), IO_BUFFER)), IO_BUFFER));
+		}
+
+		/**
+		 * Reads the next bigram of the run, or returns false at its end.
+		 */
+		boolean advance() throws IOException {
+			if (!in.readBoolean()) {
+				return false;
+			}
+			first = ChainDelta.readWord(in);
+			second = ChainDelta.readWord(in);
+			count = in.readInt();
+			return true;
+		}
+
+		@Override
+		public void close() {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Writes the merged counts as a ModelSnapshot. The start words (which sort
+	 * first) must be preceded by their number, so they are spooled to a
+	 * temporary file until the first state comes along. The successors of each
+	 * state are collected until the next state starts.
+	 */
+	private class ModelWriter implements CountSink, Closeable {
+		private final DataOutputStream out;
+		private final File startSpool;
+		private DataOutputStream starts;
+		private int startCount = 0;
+
+		private String state;
+		private final List<String> successors = new ArrayList<String>();
+		private int[] counts = new int[16];
+
+		ModelWriter(String filePath) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), IO_BUFFER));
+			ModelSnapshot.writeHeader(out);
+			startSpool = File.createTempFile("starts", ".run", directory);
+			starts = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(startSpool), IO_BUFFER));
+		}
+
+		@Override
+		public void accept(String first, String second, int count) throws IOException {
+			if (first == null) {
+				ChainDelta.writeWord(second, starts);
+				starts.writeInt(count);
+				startCount++;
+				return;
+			}
+			writeStartWords();
+			if (!first.equals(state)) {
+				writeState();
+				state = first;
+			}
+			if (successors.size() == counts.length) {
+				counts = Arrays.copyOf(counts, counts.length * 2);
+			}
+			counts[successors.size()] = count;
+			successors.add(second);
+		}
+
+		private void writeStartWords() throws IOException {
+			if (starts == null) {
+				return;
+			}
+			starts.close();
+			starts = null;
+			out.writeInt(startCount);
+			try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(startSpool), IO_BUFFER)) {
+				byte[] buffer = new byte[IO_BUFFER];
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					out.write(buffer, 0, n);
+				}
+			}
+		}
+
+		private void writeState() throws IOException {
+			if (state == null) {
+				return;
+			}
+			out.writeBoolean(true);
+			out.writeUTF(state);
+			out.writeInt(successors.size());
+			for (int i = 0; i < successors.size(); i++) {
+				ChainDelta.writeWord(successors.get(i), out);
+				out.writeInt(counts[i]);
+			}
+			successors.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				writeStartWords();
+				writeState();
+				out.writeBoolean(false);
+				out.close();
+			} finally {
+				if (starts != null) {
+					starts.close();
+				}
+				startSpool.delete();
+			}
+		}
+	}
+
+	/**
+	 * Trains a model on a CSV file with bounded memory and writes it as a
+	 * snapshot.
+	 *
+	 * Usage: java ExternalBigramCounter input.csv tweetColumn output.model
+	 * [bufferPairs] [spillDirectory]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println(
+					"usage: java ExternalBigramCounter input.csv tweetColumn output.model [bufferPairs] [spillDirectory]");
+			System.exit(2);
+		}
+		int bufferPairs = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 22;
+		File directory = new File(args.length > 4 ? args[4] : System.getProperty("java.io.tmpdir"));
+		try (ExternalBigramCounter counter = new ExternalBigramCounter(directory, bufferPairs)) {
+			counter.trainFile(args[0], Integer.parseInt(args[1]));
+			counter.writeModel(args[2]);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering MarkovChain.freeze().
+ */
+@Name("twitterbot.Freeze")
+@Label("Freeze Model")
+@Category("TwitterBot")
+@Description("Identical successor distributions shared and sampling tables built")
+class FreezeEvent extends Event {
+
+	@Label("States")
+	int states;
+
+	@Label("Distinct Distributions")
+	int distributions;
+}
@@ -0,0 +1,33 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the walk through the MarkovChain of one
+ * TwitterBot.generateTweet() (or generateTweetContaining()) call.
+ */
+@Name("twitterbot.GenerateTweet")
+@Label("Generate Tweet")
+@Category("TwitterBot")
+@Description("A walk through the MarkovChain producing one tweet")
+class GenerateTweetEvent extends Event {
+
+	@Label("Desired Length")
+	int desiredLength;
+
+	@Label("Length")
+	int length;
+
+	@Label("Steps")
+	@Description("Words drawn from the MarkovChain")
+	long steps;
+
+	@Label("Resets")
+	@Description("Sentences started after the first one")
+	long resets;
+
+	@Label("Status")
+	String status;
+}
@@ -0,0 +1,96 @@
+/**
+ * The outcome of generating a tweet with a budget (see
+ * TwitterBot.generateTweet(int, long, Duration)): the tweet, or as much of it
+ * as was generated before the budget ran out, along with how much work it
+ * took.
+ */
+public class GenerationResult {
+
+	/**
+	 * Why the generation stopped.
+	 */
+	public enum Status {
+		/** the tweet reached the desired length */
+		COMPLETE,
+		/** the maximum number of steps was reached first */
+		STEP_BUDGET_EXHAUSTED,
+		/** the deadline passed first */
+		DEADLINE_EXCEEDED,
+		/** the generating thread was interrupted */
+		INTERRUPTED
+	}
+
+	private final String tweet;
+	private final Status status;
+	private final long steps;
+	private final long resets;
+
+	/**
+	 * @param tweet  - the generated tweet, complete or not
+	 * @param status - why the generation stopped
+	 * @param steps  - the number of words drawn from the MarkovChain
+	 * @param resets - the number of times a new sentence was started after the
+	 *               first one
+	 */
+	public GenerationResult(String tweet, Status status, long steps, long resets) {
+		this.tweet = tweet;
+		this.status = status;
+		this.steps = steps;
+		this.resets = resets;
+	}
+
+	/**
+	 * @return the generated tweet if it is complete, or else the words generated
+	 *         before the budget ran out (which may end in the middle of a
+	 *         sentence)
+	 */
+	public String getTweet() {
+		return tweet;
+	}
+
+	/**
+	 * @return why the generation stopped
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return true if the tweet reached the desired length
+	 */
+	public boolean isComplete() {
+		return status == Status.COMPLETE;
+	}
+
+	/**
+	 * @return the number of words drawn from the MarkovChain
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return the number of times a new sentence was started after the first one
+	 */
+	public long getResets() {
+		return resets;
+	}
+
+	/**
+	 * @return the tweet, if it is complete
+	 * @throws GenerationTimeoutException if the budget ran out (or the thread was
+	 *                                    interrupted) before the tweet was
+	 *                                    complete
+	 */
+	public String getCompleteTweet() {
+		if (!isComplete()) {
+			throw new GenerationTimeoutException(this);
+		}
+		return tweet;
+	}
+
+	@Override
+	public String toString() {
+		return status + " after " + steps + " steps and " + resets + " resets: " + tweet;
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ * Thrown when a tweet could not be generated within its budget (see
+ * GenerationResult.getCompleteTweet()). The partial result is kept, so callers
+ * can still use what was generated.
+ */
+public class GenerationTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient GenerationResult result;
+
+	/**
+	 * @param result - the incomplete result of the generation
+	 */
+	public GenerationTimeoutException(GenerationResult result) {
+		super("tweet generation stopped early: " + result.getStatus() + " after " + result.getSteps()
+				+ " steps and " + result.getResets() + " resets");
+		this.result = result;
+	}
+
+	/**
+	 * @return the incomplete result of the generation
+	 */
+	public GenerationResult getResult() {
+		return result;
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * A LatencyHistogram counts latencies (or any other non-negative long values)
+ * in buckets that are at most about 1.6% wide relative to their values, so that
+ * percentiles can be reported from millions of samples in a fixed amount of
+ * memory.
+ *
+ * Values below 128 get a bucket each. Above that, every power of two is split
+ * into 64 buckets of equal width, like the buckets of HdrHistogram with two
+ * significant digits.
+ *
+ * When a load generator waits for each request to finish before sending the
+ * next, a slow request also delays the requests that should have been sent
+ * while it was running, and their latencies are never measured ("coordinated
+ * omission"). recordCorrected() makes up for those missing samples.
+ *
+ * A LatencyHistogram is not thread-safe: each thread should record into its own
+ * and the histograms can be added up at the end.
+ */
+public class LatencyHistogram {
+
+	private static final int LINEAR = 128;
+	private static final int SUB_BUCKETS = 64;
+	private static final int BUCKETS = LINEAR + 56 * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	/**
+	 * Records one value.
+	 *
+	 * @param value - a non-negative value
+	 * @throws IllegalArgumentException if value is negative
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value cannot be negative");
+		}
+		counts[bucket(value)]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Records one value that was measured by a caller meant to take a sample
+	 * every expectedInterval, and which could not take any other sample while
+	 * this one lasted. The samples that were missed are recorded too, as the
+	 * latencies they would have had: value - expectedInterval, value - 2 *
+	 * expectedInterval, ... down to expectedInterval.
+	 *
+	 * @param value            - a non-negative value
+	 * @param expectedInterval - the expected time between samples, or 0 to record
+	 *                         value alone
+	 * @throws IllegalArgumentException if value or expectedInterval is negative
+	 */
+	public void recordCorrected(long value, long expectedInterval) {
+		if (expectedInterval < 0) {
+			throw new IllegalArgumentException("expectedInterval cannot be negative");
+		}
+		record(value);
+		if (expectedInterval > 0) {
+			for (long missed = value - expectedInterval; missed >= expectedInterval; missed -= expectedInterval) {
+				record(missed);
+			}
+		}
+	}
+
+	/**
+	 * Adds all of the values recorded by other to this histogram.
+	 *
+	 * @param other - the (non-null) histogram to add
+	 * @throws IllegalArgumentException if other is null
+	 */
+	public void add(LatencyHistogram other) {
+		if (other == null) {
+			throw new IllegalArgumentException("histogram cannot be null");
+		}
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * @return the smallest value recorded, or 0 if there is none
+	 */
+	public long min() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * @return the largest value recorded, or 0 if there is none
+	 */
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * @return the mean of the values recorded, or 0 if there is none
+	 */
+	public double mean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns the value below or at which the given percentage of the recorded
+	 * values fall. The result is the upper end of the value's bucket (but never
+	 * more than max()), so it is at most about 1.6% too high.
+	 *
+	 * @param percentile - a percentage between 0 and 100
+	 * @return the value at that percentile, or 0 if no value was recorded
+	 * @throws IllegalArgumentException if percentile is out of range
+	 */
+	public long percentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(max, highest(i));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return the index of the bucket counting value
+	 */
+	static int bucket(long value) {
+		if (value < LINEAR) {
+			return (int) value;
+		}
+		// shift leaves the six bits below the highest one set
+		int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+		return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * @return the largest value counted by the bucket at index
+	 */
+	static long highest(int index) {
+		if (index < LINEAR) {
+			return index;
+		}
+		int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+		long mantissa = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
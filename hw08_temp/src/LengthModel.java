@@ -0,0 +1,254 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A LengthModel holds statistics about how long the rest of a sentence will
+ * be, measured in characters, once a walk through a MarkovChain has reached a
+ * given word. They are used to generate tweets of a target length in a single
+ * pass, without going over the length and without starting over.
+ *
+ * For every word w, counting w itself and a single space between words (but
+ * not the punctuation ending the sentence):
+ *
+ * - minLength(w) is the length of the shortest possible rest of the sentence
+ *
+ * - expectedLength(w) is the average length of the rest of the sentence when
+ * successors are picked according to the chain's frequencies
+ *
+ * The model is a snapshot of the chain at the time it was built.
+ */
+class LengthModel {
+
+	/**
+	 * How strongly pick() steers away from successors that are expected to make
+	 * the sentence too long: the weight of such a successor is halved for roughly
+	 * every STEERING_SCALE characters it is expected to go over.
+	 */
+	private static final double STEERING_SCALE = 8.0;
+	private static final int FULL_WEIGHT = 64;
+
+	private static final int MAX_ITERATIONS = 500;
+	private static final double TOLERANCE = 0.01;
+
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final int[] minLength;
+	private final double[] expectedLength;
+
+	/**
+	 * Computes the length statistics of every word in mc.
+	 *
+	 * @param mc - a (non-null) trained MarkovChain
+	 */
+	LengthModel(MarkovChain mc) {
+		List<String> words = new ArrayList<String>(mc.chain.keySet());
+		for (String word : words) {
+			ids.put(word, ids.size());
+		}
+		// successors that never start a bigram (only possible when bigrams are
+		// added by hand) are words that end the walk
+		for (ProbabilityDistribution<String> pd : mc.chain.values()) {
+			for (String successor : pd.keySet()) {
+				if (successor != null && !ids.containsKey(successor)) {
+					ids.put(successor, ids.size());
+					words.add(successor);
+				}
+			}
+		}
+		int n = words.size();
+
+		// the chain as arrays: the successors of word i are target[edgeStart[i]] to
+		// target[edgeStart[i + 1] - 1], where -1 stands for the end of the sentence
+		int[] edgeStart = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			ProbabilityDistribution<String> pd = mc.chain.get(words.get(i));
+			edgeStart[i + 1] = edgeStart[i] + (pd == null ? 0 : pd.keySet().size());
+		}
+		int[] target = new int[edgeStart[n]];
+		double[] probability = new double[edgeStart[n]];
+		for (int i = 0; i < n; i++) {
+			ProbabilityDistribution<String> pd = mc.chain.get(words.get(i));
+			if (pd != null) {
+				int[] edge = { edgeStart[i] };
+				double total = pd.getTotal();
+				pd.forEachCount((successor, count) -> {
+					target[edge[0]] = successor == null ? -1 : ids.get(successor);
+					probability[edge[0]] = count / total;
+					edge[0]++;
+				});
+			}
+		}
+
+		int[] wordLength = new int[n];
+		for (int i = 0; i < n; i++) {
+			wordLength[i] = words.get(i).length();
+		}
+		this.minLength = shortestLengths(wordLength, edgeStart, target);
+		this.expectedLength = expectedLengths(wordLength, edgeStart, target, probability);
+	}
+
+	/**
+	 * Dijkstra's algorithm run backward from the words that can end a sentence.
+	 */
+	private static int[] shortestLengths(int[] wordLength, int[] edgeStart, int[] target) {
+		int n = wordLength.length;
+		int[] inStart = new int[n + 1];
+		for (int t : target) {
+			if (t >= 0) {
+				inStart[t + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			inStart[i + 1] += inStart[i];
+		}
+		int[] source = new int[inStart[n]];
+		int[] filled = Arrays.copyOf(inStart, n);
+		int[] dist = new int[n];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		PriorityQueue<Long> queue = new PriorityQueue<Long>();
+		for (int i = 0; i < n; i++) {
+			boolean canEnd = edgeStart[i] == edgeStart[i + 1];
+			for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+				if (target[e] < 0) {
+					canEnd = true;
+				} else {
+					source[filled[target[e]]++] = i;
+				}
+			}
+			if (canEnd) {
+				dist[i] = wordLength[i];
+				queue.add(((long) dist[i] << 32) | i);
+			}
+		}
+		while (!queue.isEmpty()) {
+			long head = queue.poll();
+			int j = (int) head;
+			if ((int) (head >>> 32) != dist[j]) {
+				continue;
+			}
+			for (int e = inStart[j]; e < inStart[j + 1]; e++) {
+				int i = source[e];
+				long candidate = (long) wordLength[i] + 1 + dist[j];
+				if (candidate < dist[i]) {
+					dist[i] = (int) candidate;
+					queue.add((candidate << 32) | i);
+				}
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * Solves expected[i] = length[i] + sum over successors j of p(i, j) * (1 +
+	 * expected[j]) by repeated substitution until the values stop changing.
+	 */
+	private static double[] expectedLengths(int[] wordLength, int[] edgeStart, int[] target,
+			double[] probability) {
+		int n = wordLength.length;
+		double[] expected = new double[n];
+		for (int i = 0; i < n; i++) {
+			expected[i] = wordLength[i];
+		}
+		for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+			double change = 0;
+			for (int i = 0; i < n; i++) {
+				double value = wordLength[i];
+				for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+					if (target[e] >= 0) {
+						value += probability[e] * (1 + expected[target[e]]);
+					}
+				}
+				change = Math.max(change, Math.abs(value - expected[i]));
+				expected[i] = value;
+			}
+			if (change < TOLERANCE) {
+				break;
+			}
+		}
+		return expected;
+	}
+
+	/**
+	 * @param word - a word of the chain
+	 * @return the length of the shortest sentence ending that starts with word
+	 *         (word.length() if word is not in the chain)
+	 */
+	int minLength(String word) {
+		Integer id = ids.get(word);
+		return id == null ? word.length() : minLength[id];
+	}
+
+	/**
+	 * @param word - a word of the chain
+	 * @return the average length of the sentence ending that starts with word
+	 *         (word.length() if word is not in the chain)
+	 */
+	double expectedLength(String word) {
+		Integer id = ids.get(word);
+		return id == null ? word.length() : expectedLength[id];
+	}
+
+	/**
+	 * Picks an element of pd (either a successor distribution or the start words)
+	 * such that the rest of the sentence can still fit in the available space.
+	 *
+	 * Picking a word w costs space + minLength(w) characters at least; words that
+	 * do not fit are never picked, and null (the end of the sentence) always fits.
+	 * Among the words that fit, the choice follows the recorded frequencies, but
+	 * words expected to need more than the available space are made less likely
+	 * the further they are expected to go over.
+	 *
+	 * @param pd        - the distribution to pick from
+	 * @param space     - the characters needed before the word (1 for the space
+	 *                  separating it from the previous word, or 0)
+	 * @param available - the number of characters available for the rest of the
+	 *                  sentence
+	 * @param ng        - the NumberGenerator used to make the choice
+	 * @return the chosen element, or null if it is null or nothing fits
+	 */
+	String pick(ProbabilityDistribution<String> pd, int space, int available, NumberGenerator ng) {
+		int size = pd.keySet().size();
+		String[] candidates = new String[size];
+		long[] weights = new long[size];
+		int[] found = { 0 };
+		long[] total = { 0 };
+		pd.forEachCount((word, count) -> {
+			long weight;
+			if (word == null) {
+				weight = (long) count * FULL_WEIGHT;
+			} else if ((long) space + minLength(word) > available) {
+				return;
+			} else {
+				double over = space + expectedLength(word) - available;
+				double factor = over <= 0 ? FULL_WEIGHT : FULL_WEIGHT * Math.pow(0.5, over / STEERING_SCALE);
+				weight = (long) count * Math.max(1, Math.round(factor));
+			}
+			candidates[found[0]] = word;
+			weights[found[0]++] = weight;
+			total[0] += weight;
+		});
+		if (found[0] == 0) {
+			return null;
+		}
+		// scale the weights down if they do not fit in the generator's int bound
+		if (total[0] > Integer.MAX_VALUE) {
+			long divisor = total[0] / Integer.MAX_VALUE + 1;
+			total[0] = 0;
+			for (int i = 0; i < found[0]; i++) {
+				weights[i] = Math.max(1, weights[i] / divisor);
+				total[0] += weights[i];
+			}
+		}
+		long index = ng.next((int) total[0]);
+		for (int i = 0; i < found[0]; i++) {
+			if (index < weights[i]) {
+				return candidates[i];
+			}
+			index -= weights[i];
+		}
+		throw new IllegalStateException("generator returned a number out of bounds");
+	}
+}
@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator measures the end-to-end throughput and latency of generating
+ * tweets from one trained TwitterBot that several threads use at once.
+ *
+ * Each of the threads sends requests (a call to generateTweet, or to
+ * generateTweets for batches) in one of two ways:
+ *
+ * - OPEN: the requests are sent at a fixed rate, whatever happens. A thread
+ * cannot send a request while it waits for the previous one, so a late request
+ * is sent as soon as possible, and its latency is measured from the time it
+ * should have been sent (as wrk2 does). Requests held up behind a slow one are
+ * therefore measured as the users waiting for them would see them.
+ *
+ * - CLOSED: each thread sends a request once the previous one is done, waiting
+ * first if it is ahead of the given rate (or not at all if the rate is 0).
+ * Latencies are measured from the actual send time, and corrected for
+ * coordinated omission (see LatencyHistogram.recordCorrected) using the
+ * interval between requests that the rate asks for.
+ *
+ * The rate is the total for all threads, in requests per second. An OPEN run
+ * still ends on time when the bot cannot keep up: the requests still waiting
+ * to be sent at the end are not sent, but are recorded as overdue, with the
+ * latency they had reached by then (a lower bound of the latency they would
+ * have had). They are not counted in the throughput.
+ */
+public class LoadGenerator {
+
+	/**
+	 * How requests are sent (see LoadGenerator).
+	 */
+	public enum Arrival {
+		OPEN, CLOSED
+	}
+
+	private final TwitterBot bot;
+	private final int threads;
+	private final int tweetLength;
+	private final int batch;
+
+	/**
+	 * @param bot         - the (non-null) TwitterBot to generate tweets with
+	 * @param threads     - the number of threads sending requests
+	 * @param tweetLength - the length of the tweets to generate
+	 * @param batch       - the number of tweets per request: 1 to call
+	 *                    generateTweet, more to call generateTweets
+	 * @throws IllegalArgumentException if an argument is invalid
+	 */
+	public LoadGenerator(TwitterBot bot, int threads, int tweetLength, int batch) {
+		if (bot == null || threads < 1 || tweetLength < 1 || tweetLength > TwitterBot.MAX_TWEET_LENGTH
+				|| batch < 1) {
+			throw new IllegalArgumentException("invalid load configuration");
+		}
+		this.bot = bot;
+		this.threads = threads;
+		this.tweetLength = tweetLength;
+		this.batch = batch;
+	}
+
+	/**
+	 * The outcome of one run: how many requests were completed and how long
+	 * they took.
+	 */
+	public static final class Report {
+		private final Arrival arrival;
+		private final double rate;
+		private final long completed;
+		private final long overdue;
+		private final long elapsedNanos;
+		private final LatencyHistogram latencies;
+
+		Report(Arrival arrival, double rate, long completed, long overdue, long elapsedNanos,
+				LatencyHistogram latencies) {
+			this.arrival = arrival;
+			this.rate = rate;
+			this.completed = completed;
+			this.overdue = overdue;
+			this.elapsedNanos = elapsedNanos;
+			this.latencies = latencies;
+		}
+
+		/**
+		 * @return the requests completed per second during the measured run
+		 */
+		public double getThroughput() {
+			return elapsedNanos == 0 ? 0 : completed * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @return the number of requests completed during the measured run
+		 */
+		public long getCompleted() {
+			return completed;
+		}
+
+		/**
+		 * @return the number of OPEN requests that were due but still not sent
+		 *         when the run ended
+		 */
+		public long getOverdue() {
+			return overdue;
+		}
+
+		/**
+		 * @return the latencies of the requests, in nanoseconds
+		 */
+		public LatencyHistogram getLatencies() {
+			return latencies;
+		}
+
+		/**
+		 * @return a one line summary: arrival, target rate, throughput and latency
+		 *         percentiles in milliseconds
+		 */
+		@Override
+		public String toString() {
+			return String.format("%-6s %10.1f %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f", arrival,
+					rate, getThroughput(), millis(latencies.percentile(50)), millis(latencies.percentile(90)),
+					millis(latencies.percentile(99)), millis(latencies.percentile(99.9)), millis(latencies.max()));
+		}
+
+		/**
+		 * @return the column headings matching toString()
+		 */
+		public static String header() {
+			return String.format("%-6s %10s %10s %9s %9s %9s %9s %9s", "mode", "rate/s", "done/s", "p50 ms",
+					"p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		}
+
+		private static double millis(long nanos) {
+			return nanos / 1e6;
+		}
+	}
+
+	/**
+	 * Sends requests for warmup + duration, and reports on the requests that
+	 * finished after the warmup (which, when the bot cannot keep up with an OPEN
+	 * rate, includes requests that were due during the warmup) and on the OPEN
+	 * requests still overdue at the end.
+	 *
+	 * @param arrival  - how requests are sent
+	 * @param rate     - the total requests per second of all threads; must be
+	 *                 positive for OPEN, and may be 0 for CLOSED to send requests
+	 *                 as fast as possible
+	 * @param warmup   - how long to send requests before measuring
+	 * @param duration - how long to measure
+	 * @return the Report of the measured requests
+	 * @throws IllegalArgumentException if an argument is invalid
+	 * @throws InterruptedException     if the calling thread is interrupted
+	 */
+	public Report run(Arrival arrival, double rate, Duration warmup, Duration duration) throws InterruptedException {
+		if (arrival == null || warmup == null || duration == null || warmup.isNegative() || duration.isZero()
+				|| duration.isNegative() || !(rate > 0 || rate == 0 && arrival == Arrival.CLOSED)) {
+			throw new IllegalArgumentException("invalid run configuration");
+		}
+		long interval = rate == 0 ? 0 : Math.max(1, Math.round(threads * 1e9 / rate));
+		long start = System.nanoTime();
+		long measureStart = start + warmup.toNanos();
+		long end = measureStart + duration.toNanos();
+
+		List<Worker> workers = new ArrayList<Worker>();
+		for (int i = 0; i < threads; i++) {
+			// spread the first requests of the threads over one interval
+			Worker worker = new Worker(arrival, interval, start + interval * i / threads, measureStart, end);
+			worker.setName("LoadGenerator " + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+		LatencyHistogram latencies = new LatencyHistogram();
+		long completed = 0;
+		long overdue = 0;
+		long lastFinish = measureStart;
+		try {
+			for (Worker worker : workers) {
+				worker.join();
+			}
+		} finally {
+			for (Worker worker : workers) {
+				worker.interrupt();
+			}
+		}
+		for (Worker worker : workers) {
+			latencies.add(worker.latencies);
+			completed += worker.completed;
+			overdue += worker.overdue;
+			lastFinish = Math.max(lastFinish, worker.lastFinish);
+		}
+		return new Report(arrival, rate, completed, overdue, lastFinish - measureStart, latencies);
+	}
+
+	private final class Worker extends Thread {
+		private final Arrival arrival;
+		private final long interval;
+		private final long firstSend;
+		private final long measureStart;
+		private final long end;
+
+		final LatencyHistogram latencies = new LatencyHistogram();
+		long completed;
+		long overdue;
+		long lastFinish;
+
+		Worker(Arrival arrival, long interval, long firstSend, long measureStart, long end) {
+			this.arrival = arrival;
+			this.interval = interval;
+			this.firstSend = firstSend;
+			this.measureStart = measureStart;
+			this.end = end;
+		}
+
+		@Override
+		public void run() {
+			long scheduled = firstSend;
+			while (scheduled - end < 0 && System.nanoTime() - end < 0 && !isInterrupted()) {
+				long now;
+				while ((now = System.nanoTime()) - scheduled < 0) {
+					LockSupport.parkNanos(scheduled - now);
+				}
+				if (arrival == Arrival.CLOSED) {
+					scheduled = now;
+				}
+				if (batch == 1) {
+					bot.generateTweet(tweetLength);
+				} else {
+					bot.generateTweets(batch, tweetLength);
+				}
+				long finish = System.nanoTime();
+				if (finish - measureStart >= 0) {
+					if (arrival == Arrival.OPEN) {
+						latencies.record(finish - scheduled);
+					} else {
+						latencies.recordCorrected(finish - scheduled, interval);
+					}
+					completed++;
+					lastFinish = finish;
+				}
+				scheduled = arrival == Arrival.OPEN || interval > 0 ? scheduled + interval : finish;
+			}
+			if (arrival == Arrival.OPEN) {
+				// the requests due before the end that could not be sent in time
+				for (; scheduled - end < 0; scheduled += interval) {
+					latencies.record(end - scheduled);
+					overdue++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a load test against a bot trained on a CSV file (e.g. one of the
+	 * files in files/) or loaded from a model snapshot, and prints the
+	 * throughput and latency percentiles at each of the given rates.
+	 *
+	 * Usage: java LoadGenerator (csvFile tweetColumn | --model modelFile) threads
+	 * open|closed rate[,rate...] seconds [tweetLength] [batch]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 6) {
+			System.err.println("usage: java LoadGenerator (csvFile tweetColumn | --model modelFile) threads "
+					+ "open|closed rate[,rate...] seconds [tweetLength] [batch]");
+			System.exit(2);
+		}
+		NumberGenerator ng = new XoroshiroNumberGenerator();
+		TwitterBot bot = args[0].equals("--model") ? TwitterBot.load(args[1], ng)
+				: new TwitterBot(args[0], Integer.parseInt(args[1]), ng,
+						new TrainingOptions().vocabulary(new Vocabulary()));
+		bot.mc.freeze();
+		int threads = Integer.parseInt(args[2]);
+		Arrival arrival = Arrival.valueOf(args[3].toUpperCase());
+		Duration duration = Duration.ofSeconds(Long.parseLong(args[5]));
+		int tweetLength = args.length > 6 ? Integer.parseInt(args[6]) : TwitterBot.MAX_TWEET_LENGTH;
+		int batch = args.length > 7 ? Integer.parseInt(args[7]) : 1;
+		LoadGenerator generator = new LoadGenerator(bot, threads, tweetLength, batch);
+		Duration warmup = duration.dividedBy(5);
+		System.out.println(Report.header());
+		for (String rate : args[4].split(",")) {
+			System.out.println(generator.run(arrival, Double.parseDouble(rate), warmup, duration));
+		}
+	}
+}
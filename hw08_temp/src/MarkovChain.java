@@ -1,4 +1,11 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
@@ -74,6 +81,20 @@ public class MarkovChain implements Iterator<String> {
 	final ProbabilityDistribution<String> startWords;
 
 
+	/**
+	 * The reverse of chain: maps each word to the distribution of the words that
+	 * precede it, with null standing for "the word started a sentence". It is
+	 * only built when a walk containing a given word is requested, and is
+	 * discarded whenever the chain is trained further.
+	 */
+	Map<String, ProbabilityDistribution<String>> predecessors;
+
+	/**
+	 * Sentence length statistics used to generate tweets of a target length,
+	 * built on first use and discarded whenever the chain is trained further.
+	 */
+	LengthModel lengthModel;
+
 	// TODO: add field(s) used in implementing the Iterator functionality
 	String next;
 	/**
@@ -113,8 +134,9 @@ public class MarkovChain implements Iterator<String> {
 		if (first == null) {
 			throw new IllegalArgumentException("First parameter can't be null");
 		} else {
+			invalidateIndexes();
 			if (chain.containsKey(first)) {
-				ProbabilityDistribution<String> x = chain.get(first);
+				ProbabilityDistribution<String> x = thaw(first, chain.get(first));
 				x.record(second);
 				chain.put(first, x);
 			}
@@ -126,6 +148,140 @@ public class MarkovChain implements Iterator<String> {
 		}
 	}
 
+	/**
+	 * Adds count occurrences of a bigram to the Markov Chain dictionary at once,
+	 * as if addBigram(first, second) had been called count times.
+	 *
+	 * @param first  - The first word of the Bigram (should not be null)
+	 * @param second - The second word of the Bigram
+	 * @param count  - how many times the bigram was observed (must be positive)
+	 * @throws IllegalArgumentException if the first parameter is null or count is
+	 *                                  not positive.
+	 */
+	void addBigram(String first, String second, int count) {
+		if (first == null) {
+			throw new IllegalArgumentException("First parameter can't be null");
+		}
+		invalidateIndexes();
+		ProbabilityDistribution<String> x = chain.get(first);
+		if (x == null) {
+			x = new ProbabilityDistribution<String>();
+			chain.put(first, x);
+		}
+		thaw(first, x).record(second, count);
+	}
+
+	/**
+	 * Returns a distribution of first that can be recorded into: pd itself, or a
+	 * private copy of it if pd is frozen (and may be shared with other words).
+	 */
+	private ProbabilityDistribution<String> thaw(String first, ProbabilityDistribution<String> pd) {
+		if (!pd.isFrozen()) {
+			return pd;
+		}
+		ProbabilityDistribution<String> copy = new ProbabilityDistribution<String>(pd);
+		chain.put(first, copy);
+		return copy;
+	}
+
+	/**
+	 * Compacts the chain once training is done. Many words have exactly the same
+	 * successor distribution (most often a single successor seen once), so all
+	 * of the words with identical distributions are made to share one frozen
+	 * instance, and the duplicates are left to the garbage collector.
+	 *
+	 * Freezing a distribution also sorts its successors by decreasing count (see
+	 * ProbabilityDistribution.freeze()), so that suggest() can answer from them
+	 * without sorting or copying.
+	 *
+	 * The chain can still be trained afterward: a word whose shared distribution
+	 * changes gets its own copy first. Freezing again compacts the new
+	 * distributions too.
+	 *
+	 * @return the number of distinct successor distributions left in the chain
+	 */
+	public int freeze() {
+		FreezeEvent event = new FreezeEvent();
+		event.begin();
+		Map<Integer, List<ProbabilityDistribution<String>>> canonical = new HashMap<Integer, List<ProbabilityDistribution<String>>>();
+		int distinct = 0;
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : chain.entrySet()) {
+			ProbabilityDistribution<String> pd = e.getValue();
+			List<ProbabilityDistribution<String>> sameHash = canonical.computeIfAbsent(pd.contentHash(),
+					k -> new ArrayList<ProbabilityDistribution<String>>(1));
+			ProbabilityDistribution<String> shared = null;
+			for (ProbabilityDistribution<String> candidate : sameHash) {
+				if (candidate == pd || candidate.sameContent(pd)) {
+					shared = candidate;
+					break;
+				}
+			}
+			if (shared == null) {
+				pd.freeze();
+				sameHash.add(pd);
+				distinct++;
+			} else if (shared != pd) {
+				e.setValue(shared);
+			}
+		}
+		if (event.shouldCommit()) {
+			event.states = chain.size();
+			event.distributions = distinct;
+			event.commit();
+		}
+		return distinct;
+	}
+
+	/**
+	 * Removes all of the frequency information of another MarkovChain (its bigrams
+	 * and start words) from this one, undoing an earlier merge() of the same
+	 * chain. Words left without any successor are removed from the chain.
+	 *
+	 * @param other - the (non-null) MarkovChain whose counts should be removed
+	 * @throws IllegalArgumentException if other is null, or has counts that this
+	 *                                  chain does not have
+	 */
+	void subtract(MarkovChain other) {
+		if (other == null) {
+			throw new IllegalArgumentException("MarkovChain to subtract cannot be null");
+		}
+		invalidateIndexes();
+		other.startWords.forEachCount((word, count) -> startWords.remove(word, count));
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : other.chain.entrySet()) {
+			String first = e.getKey();
+			ProbabilityDistribution<String> pd = chain.get(first);
+			if (pd == null) {
+				throw new IllegalArgumentException("no bigrams starting with " + first + " to subtract");
+			}
+			ProbabilityDistribution<String> own = thaw(first, pd);
+			e.getValue().forEachCount((second, count) -> own.remove(second, count));
+			if (own.getTotal() == 0) {
+				chain.remove(first);
+			}
+		}
+	}
+
+	/**
+	 * Adds all of the frequency information of another MarkovChain (its bigrams
+	 * and start words) to this one. Training two chains on different sentences and
+	 * merging one into the other gives the same result as training a single chain
+	 * on all of the sentences.
+	 *
+	 * @param other - the (non-null) MarkovChain whose counts should be added
+	 * @throws IllegalArgumentException if other is null
+	 */
+	void merge(MarkovChain other) {
+		if (other == null) {
+			throw new IllegalArgumentException("MarkovChain to merge cannot be null");
+		}
+		invalidateIndexes();
+		other.startWords.forEachCount((word, count) -> startWords.record(word, count));
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : other.chain.entrySet()) {
+			String first = e.getKey();
+			e.getValue().forEachCount((second, count) -> addBigram(first, second, count));
+		}
+	}
+
 	/**
 	 * Adds a sentence's training data to the MarkovChain frequency information.
 	 *
@@ -156,6 +312,7 @@ public class MarkovChain implements Iterator<String> {
 			
 			if (!current.isEmpty()) {
 				startWords.record(current);
+				invalidateIndexes();
 			}
 			
 			while(sentence.hasNext()) {
@@ -171,6 +328,91 @@ public class MarkovChain implements Iterator<String> {
 		}
 	}
 
+	/**
+	 * Adds a sentence's training data to the MarkovChain frequency information,
+	 * just like train(Iterator), for a sentence given as the ids of its words in a
+	 * Vocabulary. The chain stores the Vocabulary's own String for each word, so
+	 * no new Strings are created.
+	 *
+	 * Do nothing if the sentence is empty.
+	 *
+	 * @param sentence   - the ids of the words of one sentence of training data
+	 * @param vocabulary - the Vocabulary the ids belong to
+	 * @throws IllegalArgumentException if sentence or vocabulary is null, or if an
+	 *                                  id is not in the vocabulary
+	 */
+	public void train(int[] sentence, Vocabulary vocabulary) {
+		if (sentence == null || vocabulary == null) {
+			throw new IllegalArgumentException("sentence and vocabulary cannot be null");
+		} else if (sentence.length > 0) {
+			String current = vocabulary.word(sentence[0]);
+			startWords.record(current);
+			invalidateIndexes();
+			for (int i = 1; i < sentence.length; i++) {
+				String word = vocabulary.word(sentence[i]);
+				addBigram(current, word);
+				current = word;
+			}
+			addBigram(current, null);
+		}
+	}
+
+	/**
+	 * Trains the MarkovChain on each of the given sentences in turn, as
+	 * train(Iterator) does, and reports the batch as a TrainBatchEvent to Java
+	 * Flight Recorder when that event is being recorded.
+	 *
+	 * @param sentences - the (non-null) sentences of training data
+	 * @throws IllegalArgumentException if sentences or one of them is null
+	 */
+	public void trainAll(Iterable<List<String>> sentences) {
+		if (sentences == null) {
+			throw new IllegalArgumentException("sentences cannot be null");
+		}
+		TrainBatchEvent event = new TrainBatchEvent();
+		event.begin();
+		for (List<String> sentence : sentences) {
+			if (sentence == null) {
+				throw new IllegalArgumentException("sentence cannot be null");
+			}
+			train(sentence.iterator());
+			event.sentences++;
+			event.words += sentence.size();
+		}
+		commit(event);
+	}
+
+	/**
+	 * Trains the MarkovChain on each of the given sentences in turn, as
+	 * train(int[], Vocabulary) does, and reports the batch as a TrainBatchEvent
+	 * to Java Flight Recorder when that event is being recorded.
+	 *
+	 * @param sentences  - the (non-null) sentences of training data, as word ids
+	 * @param vocabulary - the Vocabulary the ids belong to
+	 * @throws IllegalArgumentException if sentences, one of them or vocabulary is
+	 *                                  null, or if an id is not in the vocabulary
+	 */
+	public void trainAll(List<int[]> sentences, Vocabulary vocabulary) {
+		if (sentences == null) {
+			throw new IllegalArgumentException("sentences cannot be null");
+		}
+		TrainBatchEvent event = new TrainBatchEvent();
+		event.begin();
+		for (int[] sentence : sentences) {
+			train(sentence, vocabulary);
+			event.sentences++;
+			event.words += sentence.length;
+		}
+		commit(event);
+	}
+
+	private void commit(TrainBatchEvent event) {
+		if (event.shouldCommit()) {
+			event.states = chain.size();
+			event.commit();
+		}
+	}
+
 	/**
 	 * Returns the ProbabilityDistribution for a given token. Returns null if none
 	 * exists.
@@ -182,6 +424,187 @@ public class MarkovChain implements Iterator<String> {
 		return chain.get(token);
 	}
 
+	/**
+	 * Suggests the words most likely to come right after the given word, for
+	 * "what comes next" autocompletion. The end of a sentence is not suggested,
+	 * but is taken into account in the probabilities.
+	 *
+	 * Once the chain is frozen (see freeze()), every word's successors are
+	 * already sorted, so a query only returns a view of the first k of them,
+	 * which creates each Suggestion when it is read and takes the same (very
+	 * short) time whatever the size of the chain. Words
+	 * trained after the last freeze() have their successors sorted on every
+	 * query instead.
+	 *
+	 * @param word - the word to suggest successors for
+	 * @param k    - the largest number of suggestions to return
+	 * @return an unmodifiable list of at most k Suggestions, most likely first
+	 *         (ties in alphabetical order), empty if word has no successors
+	 * @throws IllegalArgumentException if k is negative
+	 */
+	public List<Suggestion> suggest(String word, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		ProbabilityDistribution<String> pd = word == null ? null : chain.get(word);
+		if (pd == null) {
+			return Collections.emptyList();
+		}
+		if (pd.isFrozen()) {
+			return topSuccessors(pd, k);
+		}
+		List<Suggestion> ranked = rankSuccessors(pd);
+		return ranked.subList(0, Math.min(k, ranked.size()));
+	}
+
+	/**
+	 * Suggests the words most likely to start a sentence, like suggest(word, k)
+	 * does for the words following word. Start words are sorted on every query.
+	 *
+	 * @param k - the largest number of suggestions to return
+	 * @return an unmodifiable list of at most k Suggestions, most likely first
+	 * @throws IllegalArgumentException if k is negative
+	 */
+	public List<Suggestion> suggestStart(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		List<Suggestion> ranked = rankSuccessors(startWords);
+		return ranked.subList(0, Math.min(k, ranked.size()));
+	}
+
+	/**
+	 * @return a read-only view of the first k non-null elements of the frozen
+	 *         distribution pd as Suggestions, which are already sorted like the
+	 *         ones of rankSuccessors()
+	 */
+	private static List<Suggestion> topSuccessors(ProbabilityDistribution<String> pd, int k) {
+		// the end of a sentence is skipped
+		int end = pd.positionOf(null);
+		int size = Math.min(k, pd.keySet().size() - (end < 0 ? 0 : 1));
+		double total = pd.getTotal();
+		return new AbstractList<Suggestion>() {
+			@Override
+			public Suggestion get(int i) {
+				if (i < 0 || i >= size) {
+					throw new IndexOutOfBoundsException("no suggestion " + i);
+				}
+				int position = end >= 0 && i >= end ? i + 1 : i;
+				int count = pd.countAt(position);
+				return new Suggestion(pd.elementAt(position), count, count / total);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return the non-null elements of pd as Suggestions, sorted by decreasing
+	 *         count and then alphabetically, in an unmodifiable list
+	 */
+	static List<Suggestion> rankSuccessors(ProbabilityDistribution<String> pd) {
+		double total = pd.getTotal();
+		List<Suggestion> ranked = new ArrayList<Suggestion>(pd.keySet().size());
+		pd.forEachCount((word, count) -> {
+			if (word != null) {
+				ranked.add(new Suggestion(word, count, count / total));
+			}
+		});
+		ranked.sort((a, b) -> a.getCount() != b.getCount() ? Integer.compare(b.getCount(), a.getCount())
+				: a.getWord().compareTo(b.getWord()));
+		return Collections.unmodifiableList(Arrays.asList(ranked.toArray(new Suggestion[ranked.size()])));
+	}
+
+	/**
+	 * Creates a ChainScorer that measures how well text fits this chain in its
+	 * current state.
+	 *
+	 * @param alpha - the smoothing constant for unseen bigrams (see ChainScorer)
+	 * @return a ChainScorer for this chain
+	 * @throws IllegalArgumentException if alpha is negative
+	 */
+	public ChainScorer scorer(double alpha) {
+		return new ChainScorer(this, alpha);
+	}
+
+	/**
+	 * Discards the indexes derived from the frequency information, which is about
+	 * to change.
+	 */
+	private void invalidateIndexes() {
+		predecessors = null;
+		lengthModel = null;
+	}
+
+	/**
+	 * @return the LengthModel of the chain in its current state
+	 */
+	LengthModel lengthModel() {
+		if (lengthModel == null) {
+			lengthModel = new LengthModel(this);
+		}
+		return lengthModel;
+	}
+
+	/**
+	 * Builds the predecessors index from the current frequency information. Every
+	 * bigram (first, second) is recorded as first preceding second, with the same
+	 * count, and every start word is recorded as being preceded by null.
+	 */
+	void buildPredecessors() {
+		Map<String, ProbabilityDistribution<String>> index = new HashMap<String, ProbabilityDistribution<String>>();
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : chain.entrySet()) {
+			String first = e.getKey();
+			e.getValue().forEachCount((second, count) -> {
+				if (second != null) {
+					index.computeIfAbsent(second, k -> new ProbabilityDistribution<String>()).record(first, count);
+				}
+			});
+		}
+		startWords.forEachCount((word, count) -> index
+				.computeIfAbsent(word, k -> new ProbabilityDistribution<String>()).record(null, count));
+		predecessors = index;
+	}
+
+	/**
+	 * Generates a whole sentence that contains the given word, without having to
+	 * generate random sentences until one happens to contain it.
+	 *
+	 * Starting at word, the walk goes backward, picking each previous word from
+	 * the predecessors index, until it reaches the start of a sentence. It then
+	 * goes forward from word, exactly like next(), until it reaches the end of a
+	 * sentence. Both halves are chosen with the NumberGenerator, in proportion to
+	 * the bigram frequencies.
+	 *
+	 * After this method returns, the walk is finished (hasNext() is false).
+	 *
+	 * @param word - the word the sentence has to contain
+	 * @return the words of a sentence containing word, or null if word never
+	 *         appeared in the training data
+	 */
+	List<String> walkThrough(String word) {
+		if (word == null || !chain.containsKey(word)) {
+			return null;
+		}
+		if (predecessors == null) {
+			buildPredecessors();
+		}
+		LinkedList<String> sentence = new LinkedList<String>();
+		String previous = word;
+		ProbabilityDistribution<String> before;
+		while ((before = predecessors.get(previous)) != null && (previous = before.pick(ng)) != null) {
+			sentence.addFirst(previous);
+		}
+		reset(word);
+		while (hasNext()) {
+			sentence.add(next());
+		}
+		return sentence;
+	}
+
 	/**
 	 * Given a starting String, sets up the Iterator functionality such that: (1)
 	 * the Markov Chain will begin a walk at start. (2) the first call to next()
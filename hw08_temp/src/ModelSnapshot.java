@@ -0,0 +1,97 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Saves a trained MarkovChain to a file and loads it back, so that a large
+ * model can be trained once (e.g. with ExternalBigramCounter) and used by many
+ * bots.
+ *
+ * A snapshot file holds a MAGIC number and a format version, followed by the
+ * chain's start words and bigram counts in ChainDelta format.
+ */
+class ModelSnapshot {
+
+	static final int MAGIC = 0x4d4b4d53; // "MKMS"
+	static final int VERSION = 1;
+
+	private ModelSnapshot() {
+	}
+
+	/**
+	 * Writes mc to the file located at filePath, replacing its contents.
+	 *
+	 * @param mc       - the MarkovChain to save
+	 * @param filePath - the path of the snapshot file
+	 * @throws IOException if the file cannot be written
+	 */
+	static void save(MarkovChain mc, String filePath) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16))) {
+			writeHeader(out);
+			ChainDelta.write(mc, out);
+		}
+	}
+
+	/**
+	 * Reads the snapshot file located at filePath into a new MarkovChain.
+	 *
+	 * @param filePath - the path of the snapshot file
+	 * @param ng       - the NumberGenerator of the new MarkovChain
+	 * @return the MarkovChain that was saved
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	static MarkovChain load(String filePath, NumberGenerator ng) throws IOException {
+		return load(filePath, ng, null);
+	}
+
+	/**
+	 * Reads the snapshot file located at filePath into a new MarkovChain, storing
+	 * the Vocabulary's own String for each word (see ChainDelta.readInto).
+	 *
+	 * @param filePath   - the path of the snapshot file
+	 * @param ng         - the NumberGenerator of the new MarkovChain
+	 * @param vocabulary - the Vocabulary to look the words up in, or null
+	 * @return the MarkovChain that was saved
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	static MarkovChain load(String filePath, NumberGenerator ng, Vocabulary vocabulary) throws IOException {
+		SnapshotLoadEvent event = new SnapshotLoadEvent();
+		event.begin();
+		MarkovChain mc = new MarkovChain(ng);
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(filePath), 1 << 16))) {
+			readHeader(in);
+			ChainDelta.readInto(in, mc, vocabulary);
+		}
+		if (event.shouldCommit()) {
+			event.file = filePath;
+			event.bytes = new File(filePath).length();
+			event.states = mc.chain.size();
+			event.commit();
+		}
+		return mc;
+	}
+
+	static void writeHeader(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	static void readHeader(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a model snapshot");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported model snapshot version " + version);
+		}
+	}
+}
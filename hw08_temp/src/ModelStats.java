@@ -0,0 +1,247 @@
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ModelStats describes the structure of a trained MarkovChain and estimates how
+ * much memory it retains, e.g. to size the heap of a bot or to decide when a
+ * model should be pruned.
+ *
+ * All of the numbers are gathered in a single pass over the chain, without
+ * copying any of its distributions.
+ *
+ * Memory is estimated for a 64-bit JVM with compressed references (12 byte
+ * object headers, 4 byte references, objects aligned to 8 bytes) and assumes
+ * that every word is stored as a single String instance shared by all the maps
+ * it appears in, as it is when the chain is trained through a Vocabulary. The
+ * estimates do not count the chain's derived indexes (see MarkovChain), which
+ * are built on demand.
+ */
+public class ModelStats {
+
+	static final int OBJECT_HEADER = 12;
+	static final int ARRAY_HEADER = 16;
+	static final int REFERENCE = 4;
+	static final int TREE_MAP = 48;
+	static final int TREE_MAP_ENTRY = 40;
+
+	private long vocabularySize;
+	private long states;
+	private long distributions;
+	private long edges;
+	private long endEdges;
+	private long transitions;
+	private long startWords;
+	private long startTransitions;
+	private int maxFanOut;
+	// fanOutHistogram[i] counts the states with between 2^i and 2^(i+1) - 1
+	// distinct successors
+	private final long[] fanOutHistogram = new long[32];
+
+	private long keyBytes;
+	private long chainBytes;
+	private long distributionBytes;
+	private long startWordBytes;
+
+	/**
+	 * Computes the statistics of mc in its current state.
+	 *
+	 * @param mc - the (non-null) MarkovChain to describe
+	 * @throws IllegalArgumentException if mc is null
+	 */
+	public ModelStats(MarkovChain mc) {
+		if (mc == null) {
+			throw new IllegalArgumentException("MarkovChain cannot be null");
+		}
+		states = mc.chain.size();
+		chainBytes = TREE_MAP + states * TREE_MAP_ENTRY;
+		// after MarkovChain.freeze(), words may share a distribution
+		Set<ProbabilityDistribution<String>> counted = Collections
+				.newSetFromMap(new IdentityHashMap<ProbabilityDistribution<String>, Boolean>());
+		for (Map.Entry<String, ProbabilityDistribution<String>> e : mc.chain.entrySet()) {
+			vocabularySize++;
+			keyBytes += stringBytes(e.getKey());
+			ProbabilityDistribution<String> pd = e.getValue();
+			int fanOut = pd.keySet().size();
+			edges += fanOut;
+			transitions += pd.getTotal();
+			maxFanOut = Math.max(maxFanOut, fanOut);
+			fanOutHistogram[31 - Integer.numberOfLeadingZeros(Math.max(1, fanOut))]++;
+			if (counted.add(pd)) {
+				distributions++;
+				distributionBytes += pd.estimatedBytes();
+			}
+			for (String successor : pd.keySet()) {
+				if (successor == null) {
+					endEdges++;
+				} else if (!mc.chain.containsKey(successor)) {
+					// only possible when bigrams are added by hand
+					vocabularySize++;
+					keyBytes += stringBytes(successor);
+				}
+			}
+		}
+		startWords = mc.startWords.keySet().size();
+		startTransitions = mc.startWords.getTotal();
+		startWordBytes = mc.startWords.estimatedBytes();
+	}
+
+	/**
+	 * @return the estimated size of a String of the given length, assuming it
+	 *         only uses Latin-1 characters
+	 */
+	static long stringBytes(String s) {
+		return align(OBJECT_HEADER + REFERENCE + 8) + align(ARRAY_HEADER + s.length());
+	}
+
+	/**
+	 * @return size rounded up to the 8 byte alignment of objects
+	 */
+	static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * @return the number of distinct words in the chain
+	 */
+	public long getVocabularySize() {
+		return vocabularySize;
+	}
+
+	/**
+	 * @return the number of words with a successor distribution
+	 */
+	public long getStates() {
+		return states;
+	}
+
+	/**
+	 * @return the number of distinct successor distribution objects, which is
+	 *         less than the number of states once identical distributions are
+	 *         shared by MarkovChain.freeze()
+	 */
+	public long getDistributions() {
+		return distributions;
+	}
+
+	/**
+	 * @return the number of distinct bigrams, including those ending a sentence
+	 */
+	public long getEdges() {
+		return edges;
+	}
+
+	/**
+	 * @return the number of distinct bigrams ending a sentence
+	 */
+	public long getEndEdges() {
+		return endEdges;
+	}
+
+	/**
+	 * @return the total number of bigrams recorded
+	 */
+	public long getTransitions() {
+		return transitions;
+	}
+
+	/**
+	 * @return the number of distinct start words
+	 */
+	public long getStartWords() {
+		return startWords;
+	}
+
+	/**
+	 * @return the number of sentences trained (the total count of start words)
+	 */
+	public long getStartTransitions() {
+		return startTransitions;
+	}
+
+	/**
+	 * @return the largest number of distinct successors of any word
+	 */
+	public int getMaxFanOut() {
+		return maxFanOut;
+	}
+
+	/**
+	 * @param bucket - a bucket between 0 and 31
+	 * @return the number of states with between 2^bucket and 2^(bucket + 1) - 1
+	 *         distinct successors
+	 */
+	public long getFanOutCount(int bucket) {
+		return fanOutHistogram[bucket];
+	}
+
+	/**
+	 * @return the estimated bytes used by the Strings of the words
+	 */
+	public long getKeyBytes() {
+		return keyBytes;
+	}
+
+	/**
+	 * @return the estimated bytes used by the chain's map itself
+	 */
+	public long getChainBytes() {
+		return chainBytes;
+	}
+
+	/**
+	 * @return the estimated bytes used by the successor distributions, including
+	 *         their tables of counts (counting shared distributions once)
+	 */
+	public long getDistributionBytes() {
+		return distributionBytes;
+	}
+
+	/**
+	 * @return the estimated bytes used by the start word distribution
+	 */
+	public long getStartWordBytes() {
+		return startWordBytes;
+	}
+
+	/**
+	 * @return the estimated total bytes retained by the chain
+	 */
+	public long getTotalBytes() {
+		return keyBytes + chainBytes + distributionBytes + startWordBytes;
+	}
+
+	/**
+	 * @return a multi-line human readable report of the statistics
+	 */
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("vocabulary:        %,d words%n", vocabularySize));
+		report.append(String.format("states:            %,d (%,d distinct distributions)%n", states,
+				distributions));
+		report.append(String.format("edges:             %,d (%,d ending a sentence)%n", edges, endEdges));
+		report.append(String.format("transitions:       %,d%n", transitions));
+		report.append(String.format("start words:       %,d distinct, %,d sentences%n", startWords,
+				startTransitions));
+		report.append(String.format("mean fan-out:      %.2f (max %,d)%n",
+				states == 0 ? 0.0 : (double) edges / states, maxFanOut));
+		report.append("fan-out histogram:\n");
+		for (int bucket = 0; bucket < fanOutHistogram.length; bucket++) {
+			if (fanOutHistogram[bucket] > 0) {
+				long low = 1L << bucket;
+				long high = (1L << (bucket + 1)) - 1;
+				String range = low == high ? String.valueOf(low) : low + "-" + high;
+				report.append(String.format("  %12s: %,d%n", range, fanOutHistogram[bucket]));
+			}
+		}
+		report.append("estimated memory:\n");
+		report.append(String.format("  keys:            %,d bytes%n", keyBytes));
+		report.append(String.format("  chain map:       %,d bytes%n", chainBytes));
+		report.append(String.format("  distributions:   %,d bytes%n", distributionBytes));
+		report.append(String.format("  start words:     %,d bytes%n", startWordBytes));
+		report.append(String.format("  total:           %,d bytes%n", getTotalBytes()));
+		return report.toString();
+	}
+}
@@ -7,7 +7,25 @@
  * is good for the bot in practice, the latter of which can be passed
  * a list for deterministic testing of the bot.
  *
+ * XoroshiroNumberGenerator is a faster alternative to
+ * RandomNumberGenerator for producing random numbers, which has to be asked
+ * for explicitly.
+ *
  */
 public interface NumberGenerator {
 	public int next(int bound);
-}
\ No newline at end of file
+
+	/**
+	 * Fills out with numbers between 0 (inclusive) and bound (exclusive), as
+	 * if by calling next(bound) once for each element of out. Implementations
+	 * may draw numbers in bulk more cheaply than one by one.
+	 *
+	 * @param bound - the upper bound (exclusive) of the numbers
+	 * @param out   - the array to fill
+	 */
+	public default void fill(int bound, int[] out) {
+		for (int i = 0; i < out.length; i++) {
+			out[i] = next(bound);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * OffsetLineIterator reads a file line by line just like FileLineIterator, but
+ * also keeps track of the byte offset in the file where the next unread line
+ * starts. That offset can be saved and later passed back to the constructor to
+ * continue reading from the same spot without re-reading the beginning of the
+ * file.
+ *
+ * Lines are split on '\n', '\r' or "\r\n" (the same terminators BufferedReader
+ * uses) and are decoded as UTF-8.
+ *
+ * When following a file that is still being written to (see TweetFollower), the
+ * iterator can be told to only return complete lines: a last line without a
+ * terminator is then left unread, and offset() stays at its start, so that it
+ * is read in full once the writer finishes it.
+ */
+public class OffsetLineIterator implements Iterator<String>, Closeable {
+
+	private final FileInputStream in;
+	private final byte[] buffer = new byte[64 * 1024];
+	private int pos = 0;
+	private int limit = 0;
+
+	// bytes of the line currently being assembled
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+
+	// file offset of buffer[pos]
+	private long readOffset;
+	// file offset just past the last line returned by next()
+	private long offset;
+
+	private String nextLine;
+	private long nextLineEnd;
+	private boolean closed = false;
+	private final boolean completeLinesOnly;
+
+	/**
+	 * Creates an OffsetLineIterator that starts reading at the beginning of the
+	 * file located at filePath.
+	 *
+	 * @param filePath - the path to the file to read
+	 * @throws IllegalArgumentException if filePath is null or the file doesn't
+	 *                                  exist
+	 */
+	public OffsetLineIterator(String filePath) {
+		this(filePath, 0);
+	}
+
+	/**
+	 * Creates an OffsetLineIterator that starts reading at the given byte offset
+	 * of the file located at filePath. The offset should be one previously
+	 * returned by offset(), i.e. the start of a line.
+	 *
+	 * @param filePath    - the path to the file to read
+	 * @param startOffset - the byte offset to start reading from
+	 * @throws IllegalArgumentException if filePath is null, the file doesn't exist
+	 *                                  or startOffset is negative
+	 */
+	public OffsetLineIterator(String filePath, long startOffset) {
+		this(filePath, startOffset, false);
+	}
+
+	/**
+	 * Creates an OffsetLineIterator that starts reading at the given byte offset
+	 * of the file located at filePath, and optionally skips a last line that has
+	 * no terminator yet.
+	 *
+	 * @param filePath          - the path to the file to read
+	 * @param startOffset       - the byte offset to start reading from
+	 * @param completeLinesOnly - whether to leave out a last line that has no
+	 *                          terminator
+	 * @throws IllegalArgumentException if filePath is null, the file doesn't exist
+	 *                                  or startOffset is negative
+	 */
+	public OffsetLineIterator(String filePath, long startOffset, boolean completeLinesOnly) {
+		this.completeLinesOnly = completeLinesOnly;
+		if (filePath == null || startOffset < 0) {
+			throw new IllegalArgumentException("File not found");
+		}
+		try {
+			in = new FileInputStream(filePath);
+			in.getChannel().position(startOffset);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("File not found");
+		}
+		this.readOffset = startOffset;
+		this.offset = startOffset;
+		advance();
+	}
+
+	/**
+	 * @return the byte offset just past the last line returned by next(), i.e.
+	 *         where a new OffsetLineIterator should start to continue reading
+	 */
+	public long offset() {
+		return offset;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return nextLine != null;
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("no more data");
+		}
+		String current = nextLine;
+		offset = nextLineEnd;
+		advance();
+		return current;
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Reads the following line into nextLine, or sets it to null (and closes the
+	 * file) once the end of the file is reached. If an IOException occurs the
+	 * iterator simply stops.
+	 */
+	private void advance() {
+		try {
+			nextLine = readLine();
+		} catch (IOException e) {
+			nextLine = null;
+		}
+		if (nextLine == null) {
+			close();
+		}
+	}
+
+	private String readLine() throws IOException {
+		if (closed) {
+			return null;
+		}
+		lineLength = 0;
+		while (true) {
+			if (pos == limit && !fill()) {
+				if (lineLength == 0 || completeLinesOnly) {
+					return null;
+				}
+				nextLineEnd = readOffset;
+				return decodeLine();
+			}
+			byte b = buffer[pos++];
+			readOffset++;
+			if (b == '\n') {
+				nextLineEnd = readOffset;
+				return decodeLine();
+			} else if (b == '\r') {
+				if ((pos < limit || fill()) && buffer[pos] == '\n') {
+					pos++;
+					readOffset++;
+				}
+				nextLineEnd = readOffset;
+				return decodeLine();
+			}
+			if (lineLength == line.length) {
+				line = Arrays.copyOf(line, line.length * 2);
+			}
+			line[lineLength++] = b;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		int n = in.read(buffer);
+		if (n <= 0) {
+			return false;
+		}
+		pos = 0;
+		limit = n;
+		return true;
+	}
+
+	private String decodeLine() {
+		return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,46 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the parsing of one chunk of LINES
+ * lines (or fewer, at the end of the file) of a CSV file by TweetParser.
+ *
+ * Like the other TwitterBot events, it is only recorded when a recording with
+ * the event enabled is running (e.g. java -XX:StartFlightRecording ...), and
+ * otherwise costs next to nothing.
+ */
+@Name("twitterbot.ParseChunk")
+@Label("Parse Chunk")
+@Category("TwitterBot")
+@Description("Lines of a CSV file read and turned into tweets or training data")
+class ParseChunkEvent extends Event {
+
+	static final int LINES = 1 << 16;
+
+	@Label("File")
+	String file;
+
+	@Label("Lines")
+	int lines;
+
+	@Label("Tweets")
+	@Description("Lines that had a tweet in the tweet column")
+	int tweets;
+
+	ParseChunkEvent(String file) {
+		this.file = file;
+		begin();
+	}
+
+	/**
+	 * Commits the event if it is being recorded.
+	 */
+	void finish() {
+		if (shouldCommit()) {
+			commit();
+		}
+	}
+}
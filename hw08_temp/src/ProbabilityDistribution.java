@@ -1,5 +1,6 @@
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.ObjIntConsumer;
 
 /**
  * This class represents a probability distribution over a type T as a map from
@@ -25,11 +26,267 @@ import java.util.Map.Entry;
  */
 class ProbabilityDistribution<T extends Comparable<T>> {
 
-	private final Map<T, Integer> records;
-	private Integer total = 0;
+	// frozen distributions with more distinct elements than this are sampled
+	// with an alias table instead of a linear scan
+	static final int MAX_SCANNED_DEGREE = 8;
+
+	// stands for a null element in keys, where null marks an empty slot
+	private static final Object NULL_KEY = new Object();
+
+	// The records, in an open addressing hash table with linear probing: the
+	// count of keys[i] is counts[i]. Recording an occurrence takes a single probe
+	// and does not box anything. The table is dropped by freeze().
+	private Object[] keys;
+	private int[] counts;
+	private int size = 0;
+	private int total = 0;
+	private boolean frozen = false;
+
+	// The records once frozen. A single element is kept in only, with no arrays.
+	// Otherwise elements holds the keys by decreasing count (ties in the order of
+	// pick(int)) and cumulative[i] is the total count of elements[0] to
+	// elements[i]. For large degrees, column i of the alias table holds
+	// elements[i] for draws below cutoff[i] and elements[alias[i]] for the
+	// others, and byElement lists the positions of elements in the order of
+	// pick(int), for binary searches.
+	private Object only;
+	private Object[] elements;
+	private int[] cumulative;
+	private int[] cutoff;
+	private int[] alias;
+	private int[] byElement;
 
 	public ProbabilityDistribution() {
-		this.records = new HashMap<T, Integer>();
+		// most words only ever have one or two successors
+		this.keys = new Object[2];
+		this.counts = new int[2];
+	}
+
+	/**
+	 * Creates a new (not frozen) ProbabilityDistribution with the same records as
+	 * another one.
+	 * 
+	 * @param other - the ProbabilityDistribution to copy
+	 */
+	ProbabilityDistribution(ProbabilityDistribution<T> other) {
+		if (other.frozen) {
+			this.keys = new Object[2];
+			this.counts = new int[2];
+			other.forEachCount((t, count) -> record(t, count));
+			return;
+		}
+		this.keys = other.keys.clone();
+		this.counts = other.counts.clone();
+		this.size = other.size;
+		this.total = other.total;
+	}
+
+	/**
+	 * Freezes the ProbabilityDistribution: no more records can be added to it, so
+	 * it can safely be shared by several owners (see MarkovChain.freeze()).
+	 * 
+	 * Freezing also picks the cheapest way to sample the distribution from then
+	 * on, depending on its number of distinct elements:
+	 * - with a single element, pick(NumberGenerator) returns it without drawing a
+	 * number at all;
+	 * - with up to MAX_SCANNED_DEGREE elements, it draws one number and scans a
+	 * small array of cumulative counts, most frequent elements first;
+	 * - with more elements, it draws two numbers (a column and a coin) from an
+	 * alias table, which takes the same time whatever the number of elements.
+	 * 
+	 * The hash table is replaced by these sampling arrays. Up to
+	 * MAX_SCANNED_DEGREE elements this takes no more memory than the table did
+	 * (a single element takes no array at all). Above it, the alias table and
+	 * the index used by count() add three more int arrays, so a frozen
+	 * distribution takes more memory than the table (about 240 bytes instead of
+	 * 128 for 12 elements) in exchange for sampling in constant time.
+	 * 
+	 * The probability of each element is unchanged, but since the numbers drawn
+	 * are not the same, a frozen distribution does not pick the same elements as
+	 * before for a given sequence of numbers. pick(int) is unchanged.
+	 */
+	void freeze() {
+		if (frozen) {
+			return;
+		}
+		frozen = true;
+		Object[] sorted = new Object[size];
+		int n = 0;
+		for (Object key : keys) {
+			if (key != null) {
+				sorted[n++] = key;
+			}
+		}
+		if (size == 1) {
+			only = sorted[0];
+		} else if (size > 1) {
+			Arrays.sort(sorted, (a, b) -> {
+				int countA = counts[slot(a)];
+				int countB = counts[slot(b)];
+				return countA != countB ? Integer.compare(countB, countA) : compareKeys(a, b);
+			});
+			cumulative = new int[size];
+			int running = 0;
+			for (int i = 0; i < size; i++) {
+				running += counts[slot(sorted[i])];
+				cumulative[i] = running;
+			}
+			elements = sorted;
+			if (size > MAX_SCANNED_DEGREE) {
+				// the counts are no longer needed, so they can map keys to positions
+				for (int i = 0; i < size; i++) {
+					counts[slot(elements[i])] = i;
+				}
+				Object[] natural = elements.clone();
+				Arrays.sort(natural, this::compareKeys);
+				byElement = new int[size];
+				for (int i = 0; i < size; i++) {
+					byElement[i] = counts[slot(natural[i])];
+				}
+				buildAliasTable();
+			}
+		}
+		keys = null;
+		counts = null;
+	}
+
+	/**
+	 * Compares two keys in the order used by pick(int), with null first.
+	 */
+	private int compareKeys(Object a, Object b) {
+		T x = element(a);
+		T y = element(b);
+		return x == null && y == null ? 0 : x == null ? -1 : y == null ? 1 : x.compareTo(y);
+	}
+
+	/**
+	 * Builds an alias table with Vose's method, in exact integer arithmetic. Each
+	 * of the n columns has room for total draws, and element i needs count(i) * n
+	 * of the n * total draws, so every element ends up with exactly its share.
+	 */
+	private void buildAliasTable() {
+		int n = elements.length;
+		long[] scaled = new long[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smalls = 0;
+		int larges = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = (long) countAt(i) * n;
+			if (scaled[i] < total) {
+				small[smalls++] = i;
+			} else {
+				large[larges++] = i;
+			}
+		}
+		cutoff = new int[n];
+		alias = new int[n];
+		while (smalls > 0 && larges > 0) {
+			int s = small[--smalls];
+			int l = large[--larges];
+			cutoff[s] = (int) scaled[s];
+			alias[s] = l;
+			scaled[l] -= total - scaled[s];
+			if (scaled[l] < total) {
+				small[smalls++] = l;
+			} else {
+				large[larges++] = l;
+			}
+		}
+		// whatever is left fills its whole column
+		while (larges > 0) {
+			int l = large[--larges];
+			cutoff[l] = total;
+			alias[l] = l;
+		}
+		while (smalls > 0) {
+			int s = small[--smalls];
+			cutoff[s] = total;
+			alias[s] = s;
+		}
+	}
+
+	/**
+	 * @return true if the ProbabilityDistribution has been frozen
+	 */
+	boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * @return a hash code of the records, equal for any two
+	 *         ProbabilityDistributions with the same records
+	 */
+	int contentHash() {
+		// the same as the hashCode() of a Map of the records
+		int hash = 0;
+		for (int i = 0; i < positions(); i++) {
+			Object key = keyAt(i);
+			if (key != null) {
+				hash += (key == NULL_KEY ? 0 : key.hashCode()) ^ countAt(i);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * @param other - another ProbabilityDistribution
+	 * @return true if other has exactly the same records as this one
+	 */
+	boolean sameContent(ProbabilityDistribution<T> other) {
+		if (total != other.total || size != other.size) {
+			return false;
+		}
+		for (int i = 0; i < positions(); i++) {
+			Object key = keyAt(i);
+			if (key != null && other.count(element(key)) != countAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of positions that keyAt() and countAt() accept: the
+	 *         slots of the table, or the elements once frozen
+	 */
+	private int positions() {
+		return frozen ? size : keys.length;
+	}
+
+	/**
+	 * @return the key at position i, or null for an empty slot of the table
+	 */
+	private Object keyAt(int i) {
+		return !frozen ? keys[i] : elements != null ? elements[i] : only;
+	}
+
+	/**
+	 * @param i - a position of a frozen ProbabilityDistribution, from 0 to the
+	 *          number of elements (exclusive)
+	 * @return the element at position i: the elements of a frozen distribution
+	 *         are in decreasing order of count, ties in the order of pick(int)
+	 */
+	T elementAt(int i) {
+		return element(keyAt(i));
+	}
+
+	/**
+	 * @param t - an element of a frozen ProbabilityDistribution
+	 * @return the position of t (see elementAt), or -1 if it is not there
+	 */
+	int positionOf(T t) {
+		return indexOf(key(t));
+	}
+
+	/**
+	 * @return the count of the key at position i
+	 */
+	int countAt(int i) {
+		if (!frozen) {
+			return counts[i];
+		}
+		return elements == null ? total : i == 0 ? cumulative[0] : cumulative[i] - cumulative[i - 1];
 	}
 
 	/**
@@ -47,15 +304,17 @@ class ProbabilityDistribution<T extends Comparable<T>> {
 	 */
 	public Set<Entry<T, Integer>> getEntrySet() {
 		// Copy constructor so records cannot be modified externally.
-		return new HashSet<Entry<T, Integer>>(records.entrySet());
+		return new HashSet<Entry<T, Integer>>(getRecords().entrySet());
 	}
 
 	/**
 	 * @return a copy of the ProbabilityDistribution's internal Map
 	 */
 	public Map<T, Integer> getRecords() {
-		// Copy constructor so records cannot be modified externally.
-		return new HashMap<T, Integer>(records);
+		// Copy so records cannot be modified externally.
+		Map<T, Integer> records = new HashMap<T, Integer>();
+		forEachCount((t, count) -> records.put(t, count));
+		return records;
 	}
 
 	/**
@@ -72,7 +331,22 @@ class ProbabilityDistribution<T extends Comparable<T>> {
 	 *                                  or greater than the total number of records in the PD
 	 */
 	public T pick(NumberGenerator generator) {
-		return this.pick(generator.next(total));
+		if (!frozen || size == 0) {
+			return this.pick(generator.next(total));
+		}
+		if (size == 1) {
+			return element(only);
+		}
+		if (alias == null) {
+			int index = generator.next(total);
+			int i = 0;
+			while (cumulative[i] <= index) {
+				i++;
+			}
+			return element(elements[i]);
+		}
+		int column = generator.next(size);
+		return element(generator.next(total) < cutoff[column] ? elements[column] : elements[alias[column]]);
 	}
 
 	/**
@@ -90,17 +364,23 @@ class ProbabilityDistribution<T extends Comparable<T>> {
 		if (index >= total || index < 0)
 			throw new IllegalArgumentException(
 					"Index has to be less than or equal to the total " + "number of records in the PD");
-		int currentIndex = 0;
-		List<T> rs = new ArrayList<T>(total);
-		rs.addAll(records.keySet());
-		Collections.sort(rs, new Comparator<T>() {
-			@Override
-			public int compare(T o1, T o2) {
-				return o1 == null && o2 == null ? 0 : o1 == null ? -1 : o2 == null ? 1 : o1.compareTo(o2);
+		if (frozen && size == 1) {
+			return element(only);
+		}
+		if (frozen) {
+			// the elements are sorted by count, so the counts are added up again in
+			// the order of pick(int)
+			int running = 0;
+			for (int i : naturalOrder()) {
+				running += countAt(i);
+				if (running > index) {
+					return element(elements[i]);
+				}
 			}
-		});
-		for (T key : rs) {
-			int currentCount = records.get(key);
+		}
+		int currentIndex = 0;
+		for (T key : sortedElements()) {
+			int currentCount = count(key);
 			if (currentIndex + currentCount > index) {
 				return key;
 			}
@@ -109,19 +389,201 @@ class ProbabilityDistribution<T extends Comparable<T>> {
 		throw new RuntimeException(
 				"Error in ProbabilityDistribution. Make sure to only add new records through record().");
 	}
+
+	/**
+	 * @return the positions of the elements of a frozen ProbabilityDistribution
+	 *         (with at least two elements) in the order used by pick(int)
+	 */
+	private int[] naturalOrder() {
+		if (byElement != null) {
+			return byElement;
+		}
+		// an insertion sort of at most MAX_SCANNED_DEGREE positions
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			int j = i;
+			while (j > 0 && compareKeys(elements[order[j - 1]], elements[i]) > 0) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		return order;
+	}
+
+	/**
+	 * @return the elements in the order used by pick(int), with null first
+	 */
+	private List<T> sortedElements() {
+		List<T> rs = new ArrayList<T>(size);
+		rs.addAll(keySet());
+		Collections.sort(rs, new Comparator<T>() {
+			@Override
+			public int compare(T o1, T o2) {
+				return o1 == null && o2 == null ? 0 : o1 == null ? -1 : o2 == null ? 1 : o1.compareTo(o2);
+			}
+		});
+		return rs;
+	}
 	/**
 	 * Add an instance to the ProbabilityDistribution. If the element already exists
 	 * in the ProbabilityDistribution, it will increment the number of occurrences
 	 * of that element.
 	 * 
 	 * @param word
+	 * @throws IllegalStateException if the ProbabilityDistribution is frozen
 	 */
 	public void record(T t) {
-		records.putIfAbsent(t, 0);
-		records.put(t, records.get(t) + 1);
+		checkNotFrozen();
+		// claim() first, as it may replace counts
+		int i = claim(t);
+		counts[i]++;
 		total++;
 	}
 
+	/**
+	 * Adds count instances of an element to the ProbabilityDistribution at once,
+	 * as if record() had been called count times. Used when merging partial
+	 * distributions together.
+	 * 
+	 * @param t     - the element to record
+	 * @param count - the number of occurrences to add (must be positive)
+	 * @throws IllegalArgumentException if count is not positive
+	 * @throws IllegalStateException    if the ProbabilityDistribution is frozen
+	 */
+	void record(T t, int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("count must be positive");
+		}
+		checkNotFrozen();
+		int i = claim(t);
+		counts[i] += count;
+		total += count;
+	}
+
+	/**
+	 * Removes count instances of an element from the ProbabilityDistribution, as
+	 * if they had never been recorded. The element is removed entirely once its
+	 * count reaches zero. Used to forget old training data (see
+	 * TimeWindowedChain).
+	 * 
+	 * @param t     - the element to remove
+	 * @param count - the number of occurrences to remove (must be positive)
+	 * @throws IllegalArgumentException if count is not positive or more than the
+	 *                                  number of occurrences of t
+	 * @throws IllegalStateException    if the ProbabilityDistribution is frozen
+	 */
+	void remove(T t, int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("count must be positive");
+		}
+		checkNotFrozen();
+		int current = count(t);
+		if (count > current) {
+			throw new IllegalArgumentException("cannot remove more occurrences than were recorded");
+		}
+		int i = slot(key(t));
+		if (count == current) {
+			delete(i);
+		} else {
+			counts[i] -= count;
+		}
+		total -= count;
+	}
+
+	private static Object key(Object t) {
+		return t == null ? NULL_KEY : t;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T element(Object key) {
+		return key == NULL_KEY ? null : (T) key;
+	}
+
+	private static int home(Object key, int mask) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * @return the slot of the table holding key, or the empty slot where it
+	 *         belongs
+	 */
+	private int slot(Object key) {
+		int mask = keys.length - 1;
+		int i = home(key, mask);
+		Object k;
+		while ((k = keys[i]) != null && !k.equals(key)) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * @return the slot of t, adding t (with a count of 0) if it is not in the
+	 *         table yet
+	 */
+	private int claim(T t) {
+		Object key = key(t);
+		int i = slot(key);
+		if (keys[i] != null) {
+			return i;
+		}
+		// only a new key can make the table too full
+		if ((size + 1) * 4 > keys.length * 3) {
+			resize(keys.length * 2);
+			i = slot(key);
+		}
+		keys[i] = key;
+		size++;
+		return i;
+	}
+
+	private void resize(int capacity) {
+		Object[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new Object[capacity];
+		counts = new int[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				counts[j] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Empties slot i, moving back any later keys of the same run that would no
+	 * longer be found past the hole.
+	 */
+	private void delete(int i) {
+		int mask = keys.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == null) {
+				break;
+			}
+			int h = home(keys[j], mask);
+			// keys[j] can fill the hole unless its home is cyclically in (i, j]
+			if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+				keys[i] = keys[j];
+				counts[i] = counts[j];
+				i = j;
+			}
+		}
+		keys[i] = null;
+		counts[i] = 0;
+		size--;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException("cannot record into a frozen ProbabilityDistribution");
+		}
+	}
+
 	/**
 	 * Counts the number of occurrences of an element in the ProbabilityDistribution
 	 * 
@@ -130,14 +592,128 @@ class ProbabilityDistribution<T extends Comparable<T>> {
 	 *         ProbabilityDistribution
 	 */
 	public int count(T t) {
-		Integer count = records.get(t);
-		return count != null ? count.intValue() : 0;
+		if (frozen) {
+			int i = indexOf(key(t));
+			return i < 0 ? 0 : countAt(i);
+		}
+		int i = slot(key(t));
+		return keys[i] != null ? counts[i] : 0;
+	}
+
+	/**
+	 * @return the position of key in a frozen distribution, or -1 if it is not
+	 *         there
+	 */
+	private int indexOf(Object key) {
+		if (elements == null) {
+			return size == 1 && only.equals(key) ? 0 : -1;
+		}
+		if (size <= MAX_SCANNED_DEGREE) {
+			for (int i = 0; i < size; i++) {
+				if (elements[i].equals(key)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = compareKeys(elements[byElement[mid]], key);
+			if (c < 0) {
+				low = mid + 1;
+			} else if (c > 0) {
+				high = mid - 1;
+			} else {
+				return byElement[mid];
+			}
+		}
+		return -1;
 	}
 
 	/**
 	 * @return a set containing all of the elements in the ProbabilityDistribution
 	 */
 	public Set<T> keySet() {
-		return records.keySet();
+		// a read-only view of the table
+		return new AbstractSet<T>() {
+			@Override
+			public Iterator<T> iterator() {
+				return new Iterator<T>() {
+					private int next = advance(0);
+
+					private int advance(int from) {
+						while (from < positions() && keyAt(from) == null) {
+							from++;
+						}
+						return from;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < positions();
+					}
+
+					@Override
+					public T next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						T t = element(keyAt(next));
+						next = advance(next + 1);
+						return t;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return frozen ? indexOf(key(o)) >= 0 : keys[slot(key(o))] != null;
+			}
+		};
+	}
+
+	/**
+	 * Estimates the number of bytes of memory used by this ProbabilityDistribution
+	 * and its hash table or sampling tables (but not by the elements themselves),
+	 * with the JVM layout assumptions described in ModelStats.
+	 * 
+	 * @return the estimated size of the ProbabilityDistribution in bytes
+	 */
+	long estimatedBytes() {
+		// 8 references, 2 ints and a boolean
+		long bytes = ModelStats.align(ModelStats.OBJECT_HEADER + 8 * ModelStats.REFERENCE + 9);
+		if (keys != null) {
+			bytes += ModelStats.align(ModelStats.ARRAY_HEADER + (long) ModelStats.REFERENCE * keys.length)
+					+ ModelStats.align(ModelStats.ARRAY_HEADER + 4L * counts.length);
+		}
+		if (elements != null) {
+			int arrays = alias == null ? 1 : 4;
+			bytes += ModelStats.align(ModelStats.ARRAY_HEADER + (long) ModelStats.REFERENCE * elements.length)
+					+ arrays * ModelStats.align(ModelStats.ARRAY_HEADER + 4L * elements.length);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Calls action once for every element in the ProbabilityDistribution along
+	 * with its count. Unlike getRecords() and getEntrySet() this does not copy the
+	 * records.
+	 * 
+	 * @param action - the function to call with each element and its count
+	 */
+	void forEachCount(ObjIntConsumer<? super T> action) {
+		for (int i = 0; i < positions(); i++) {
+			Object key = keyAt(i);
+			if (key != null) {
+				action.accept(element(key), countAt(i));
+			}
+		}
 	}
 }
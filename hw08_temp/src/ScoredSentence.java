@@ -0,0 +1,50 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sentence together with the natural logarithm of its probability under a
+ * MarkovChain.
+ */
+public class ScoredSentence {
+
+	private final List<String> words;
+	private final double logProbability;
+
+	/**
+	 * @param words          - the (non-null) words of the sentence
+	 * @param logProbability - the natural logarithm of the sentence's probability
+	 */
+	public ScoredSentence(List<String> words, double logProbability) {
+		if (words == null) {
+			throw new IllegalArgumentException("words cannot be null");
+		}
+		this.words = Collections.unmodifiableList(words);
+		this.logProbability = logProbability;
+	}
+
+	/**
+	 * @return an unmodifiable list of the words of the sentence
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 * @return the natural logarithm of the sentence's probability
+	 */
+	public double getLogProbability() {
+		return logProbability;
+	}
+
+	/**
+	 * @return the sentence's probability
+	 */
+	public double getProbability() {
+		return Math.exp(logProbability);
+	}
+
+	@Override
+	public String toString() {
+		return String.join(" ", words);
+	}
+}
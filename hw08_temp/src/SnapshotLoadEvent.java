@@ -0,0 +1,26 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the loading of a ModelSnapshot.
+ */
+@Name("twitterbot.SnapshotLoad")
+@Label("Load Model Snapshot")
+@Category("TwitterBot")
+@Description("A saved model read into a MarkovChain")
+class SnapshotLoadEvent extends Event {
+
+	@Label("File")
+	String file;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	@Label("States")
+	int states;
+}
@@ -0,0 +1,66 @@
+/**
+ * A word that may come next after some text, with the probability that the
+ * MarkovChain gives it (see MarkovChain.suggest).
+ */
+public class Suggestion {
+
+	private final String word;
+	private final int count;
+	private final double probability;
+
+	/**
+	 * @param word        - the (non-null) suggested word
+	 * @param count       - the number of times the word followed the prefix
+	 * @param probability - the probability that the word comes next
+	 */
+	public Suggestion(String word, int count, double probability) {
+		if (word == null) {
+			throw new IllegalArgumentException("word cannot be null");
+		}
+		this.word = word;
+		this.count = count;
+		this.probability = probability;
+	}
+
+	/**
+	 * @return the suggested word
+	 */
+	public String getWord() {
+		return word;
+	}
+
+	/**
+	 * @return the number of times the word followed the prefix in the training
+	 *         data
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the probability that the word comes next
+	 */
+	public double getProbability() {
+		return probability;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Suggestion)) {
+			return false;
+		}
+		Suggestion other = (Suggestion) o;
+		return word.equals(other.word) && count == other.count
+				&& Double.compare(probability, other.probability) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return (word.hashCode() * 31 + count) * 31 + Double.hashCode(probability);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%.3f)", word, probability);
+	}
+}
@@ -0,0 +1,217 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes synthetic tweet CSV files of any size, for testing and benchmarking the
+ * parser and the MarkovChain at scale without needing a real archive.
+ *
+ * The files use the same layout as the ones in files/: author,timestamp,text
+ * with the tweet in column 2, the newest tweets first and timestamps like
+ * "2019-10-09 22:26:06". Words are drawn from a synthetic vocabulary following
+ * Zipf's law (the word of rank r is used in proportion to 1 / r^exponent), like
+ * the words of real text. Tweets have one to four sentences with mixed
+ * punctuation, and some of them contain URLs, mentions, hashtags, or are quoted
+ * fields spanning several lines (with commas and doubled quotes inside).
+ *
+ * Rows are written one at a time, so files much larger than memory can be
+ * written, and the same seed always produces the same file.
+ */
+public class SyntheticCorpusGenerator {
+
+	private static final String[] COMMON_WORDS = { "the", "to", "a", "of", "and", "in", "is", "for", "you",
+			"on", "it", "we", "this", "be", "with", "our", "are", "at", "that", "will", "i", "from", "more",
+			"new", "your", "can", "today", "all", "about", "us", "have", "not", "great", "day", "see", "out" };
+	private static final String[] SYLLABLES = { "ba", "ko", "ri", "te", "mu", "sa", "lo", "ne", "vi", "da",
+			"pe", "ru", "mi", "to", "ka", "zo", "fe", "li", "no", "gu", "ha", "we", "ju", "xi" };
+	private static final String URL_CHARACTERS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final char[] PUNCTUATION = { '.', '.', '.', '.', '!', '?', ';' };
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	// chances, out of 100, of the optional parts of a tweet
+	private static final int URL_CHANCE = 15;
+	private static final int MENTION_CHANCE = 10;
+	private static final int HASHTAG_CHANCE = 10;
+	private static final int CAPITALIZED_CHANCE = 20;
+	private static final int QUOTED_CHANCE = 5;
+
+	private static final int AUTHORS = 100;
+	private static final int WORD_BATCH = 1024;
+
+	private final XoroshiroNumberGenerator ng;
+	private final String[] vocabulary;
+	// cumulative Zipf weights of the words, scaled to fit the generator's bound
+	private final int[] cumulative;
+	private final int[] wordDraws = new int[WORD_BATCH];
+	private int nextWordDraw = WORD_BATCH;
+
+	/**
+	 * @param seed           - the seed of the random choices
+	 * @param vocabularySize - the number of distinct words
+	 * @param zipfExponent   - the exponent of the Zipf distribution of the words
+	 *                       (about 1 for English text)
+	 * @throws IllegalArgumentException if vocabularySize is less than 1 or
+	 *                                  zipfExponent is negative
+	 */
+	public SyntheticCorpusGenerator(long seed, int vocabularySize, double zipfExponent) {
+		if (vocabularySize < 1 || !(zipfExponent >= 0)) {
+			throw new IllegalArgumentException("vocabularySize must be positive and zipfExponent non-negative");
+		}
+		this.ng = new XoroshiroNumberGenerator(seed);
+		this.vocabulary = new String[vocabularySize];
+		for (int rank = 0; rank < vocabularySize; rank++) {
+			vocabulary[rank] = rank < COMMON_WORDS.length ? COMMON_WORDS[rank] : syllableWord(rank);
+		}
+
+		double[] weights = new double[vocabularySize];
+		double sum = 0;
+		for (int rank = 0; rank < vocabularySize; rank++) {
+			weights[rank] = 1 / Math.pow(rank + 1, zipfExponent);
+			sum += weights[rank];
+		}
+		this.cumulative = new int[vocabularySize];
+		double scale = (1 << 30) / sum;
+		double running = 0;
+		int previous = 0;
+		for (int rank = 0; rank < vocabularySize; rank++) {
+			running += weights[rank];
+			// every word keeps a weight of at least 1
+			previous = Math.max(previous + 1, (int) Math.round(running * scale));
+			cumulative[rank] = previous;
+		}
+	}
+
+	/**
+	 * Spells out rank in base SYLLABLES.length, giving every rank its own word.
+	 */
+	private static String syllableWord(int rank) {
+		StringBuilder word = new StringBuilder();
+		int n = rank;
+		do {
+			word.append(SYLLABLES[n % SYLLABLES.length]);
+			n /= SYLLABLES.length;
+		} while (n > 0);
+		return word.toString();
+	}
+
+	/**
+	 * Writes rows tweets to the file at filePath, replacing its contents.
+	 *
+	 * @param filePath - the path of the CSV file to write
+	 * @param rows     - the number of tweets to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(String filePath, long rows) throws IOException {
+		try (Writer out = new BufferedWriter(new FileWriter(filePath), 1 << 16)) {
+			write(out, rows);
+		}
+	}
+
+	/**
+	 * Writes rows tweets to out, one CSV record each.
+	 *
+	 * @param out  - where to write the CSV records
+	 * @param rows - the number of tweets to write
+	 * @throws IOException if out cannot be written to
+	 */
+	public void write(Writer out, long rows) throws IOException {
+		LocalDateTime time = LocalDateTime.of(2019, 11, 15, 12, 0, 0);
+		StringBuilder row = new StringBuilder();
+		for (long i = 0; i < rows; i++) {
+			row.setLength(0);
+			row.append("user_").append(ng.next(AUTHORS)).append(',');
+			row.append(TIMESTAMP.format(time)).append(',');
+			appendTweet(row);
+			row.append('\n');
+			out.write(row.toString());
+			time = time.minusSeconds(1 + ng.next(3600));
+		}
+	}
+
+	private void appendTweet(StringBuilder row) {
+		boolean quoted = ng.next(100) < QUOTED_CHANCE;
+		if (quoted) {
+			row.append('"');
+		}
+		if (ng.next(100) < MENTION_CHANCE) {
+			row.append("@user_").append(ng.next(AUTHORS)).append(' ');
+		}
+		int sentences = 1 + ng.next(4);
+		for (int s = 0; s < sentences; s++) {
+			if (s > 0) {
+				row.append(quoted && ng.next(3) == 0 ? "\n\n" : " ");
+			}
+			int words = 3 + ng.next(13);
+			for (int w = 0; w < words; w++) {
+				if (w > 0) {
+					row.append(quoted && ng.next(10) == 0 ? ", " : " ");
+				}
+				String word = nextWord();
+				if (w == 0 || ng.next(100) < CAPITALIZED_CHANCE) {
+					row.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+				} else {
+					row.append(word);
+				}
+			}
+			row.append(PUNCTUATION[ng.next(PUNCTUATION.length)]);
+		}
+		if (quoted && ng.next(4) == 0) {
+			row.append(" \"\"").append(nextWord()).append("\"\"");
+		}
+		if (ng.next(100) < HASHTAG_CHANCE) {
+			row.append(" #").append(nextWord());
+		}
+		if (ng.next(100) < URL_CHANCE) {
+			row.append(" https://t.co/");
+			for (int i = 0; i < 10; i++) {
+				row.append(URL_CHARACTERS.charAt(ng.next(URL_CHARACTERS.length())));
+			}
+		}
+		if (quoted) {
+			row.append('"');
+		}
+	}
+
+	/**
+	 * Picks a word according to the Zipf distribution. Draws are made in batches
+	 * with NumberGenerator.fill() since they all have the same bound.
+	 */
+	private String nextWord() {
+		if (nextWordDraw == WORD_BATCH) {
+			ng.fill(cumulative[cumulative.length - 1], wordDraws);
+			nextWordDraw = 0;
+		}
+		int draw = wordDraws[nextWordDraw++];
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] > draw) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return vocabulary[low];
+	}
+
+	/**
+	 * Writes a synthetic corpus.
+	 *
+	 * Usage: java SyntheticCorpusGenerator output.csv rows [seed] [vocabularySize]
+	 * [zipfExponent]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: java SyntheticCorpusGenerator output.csv rows [seed] [vocabularySize] [zipfExponent]");
+			System.exit(2);
+		}
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 120;
+		int vocabularySize = args.length > 3 ? Integer.parseInt(args[3]) : 50000;
+		double zipfExponent = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+		new SyntheticCorpusGenerator(seed, vocabularySize, zipfExponent).write(args[0], Long.parseLong(args[1]));
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * How well a piece of text fits a MarkovChain, as computed by ChainScorer.
+ */
+public class TextScore {
+
+	private final double logLikelihood;
+	private final int predictions;
+
+	/**
+	 * @param logLikelihood - the natural logarithm of the probability of the text
+	 * @param predictions   - the number of words (including the end of each
+	 *                      sentence) whose probability was multiplied in
+	 */
+	public TextScore(double logLikelihood, int predictions) {
+		this.logLikelihood = logLikelihood;
+		this.predictions = predictions;
+	}
+
+	/**
+	 * @return the natural logarithm of the probability of the text; higher is a
+	 *         better fit
+	 */
+	public double getLogLikelihood() {
+		return logLikelihood;
+	}
+
+	/**
+	 * @return the number of words (including the end of each sentence) that were
+	 *         predicted
+	 */
+	public int getPredictions() {
+		return predictions;
+	}
+
+	/**
+	 * The perplexity is exp(-logLikelihood / predictions): roughly, the number of
+	 * equally likely choices the model had for each word. Lower is a better fit,
+	 * and unlike the log-likelihood it can be compared across texts of different
+	 * lengths.
+	 *
+	 * @return the perplexity of the text, or NaN if the text had no words
+	 */
+	public double getPerplexity() {
+		return predictions == 0 ? Double.NaN : Math.exp(-logLikelihood / predictions);
+	}
+
+	@Override
+	public String toString() {
+		return logLikelihood + "\t" + getPerplexity();
+	}
+}
@@ -0,0 +1,183 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A TimeWindowedChain keeps a MarkovChain trained on only the most recent
+ * tweets, using their timestamps, so that a long-running bot follows what its
+ * source is tweeting about now and its memory stops growing.
+ *
+ * Time is cut into buckets of a fixed length, and the window covers the
+ * bucketCount most recent buckets (ending with the bucket of the newest tweet
+ * seen so far). Each tweet is trained both into the live chain and into a
+ * small chain for its bucket, which are kept in a ring. When time moves past
+ * a bucket, its chain is subtracted from the live chain (see
+ * MarkovChain.subtract) and dropped, and nothing has to be retrained. Tweets
+ * older than the window are ignored.
+ *
+ * This is not constant-time eviction. Evicting a bucket takes time
+ * proportional to the number of distinct bigrams in it, about as long as
+ * training its tweets took. And since every tweet in the window is counted
+ * twice, the window takes up to about twice the memory of a chain trained on
+ * the same tweets. Walking the bucket chains directly would avoid both, but
+ * generation, suggestions, scoring and saving all read a single MarkovChain,
+ * so the live chain is kept.
+ *
+ * Timestamps are read like the ones in the CSV files in files/, e.g.
+ * "2019-10-09 22:26:06", and taken to be in UTC.
+ */
+public class TimeWindowedChain {
+
+	static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private final MarkovChain mc;
+	private final long bucketSeconds;
+	// buckets[floorMod(b, buckets.length)] holds the counts of bucket number b
+	private final MarkovChain[] buckets;
+	// number of the newest bucket (seconds since the epoch / bucketSeconds)
+	private long newestBucket = Long.MIN_VALUE;
+
+	/**
+	 * @param mc           - the (non-null, untrained) MarkovChain to keep trained
+	 *                     on the window
+	 * @param bucketLength - the length of time covered by each bucket (at least a
+	 *                     second)
+	 * @param bucketCount  - the number of buckets in the window
+	 * @throws IllegalArgumentException if mc or bucketLength is null, bucketLength
+	 *                                  is shorter than a second or bucketCount is
+	 *                                  less than 1
+	 */
+	public TimeWindowedChain(MarkovChain mc, Duration bucketLength, int bucketCount) {
+		if (mc == null || bucketLength == null || bucketLength.getSeconds() < 1 || bucketCount < 1) {
+			throw new IllegalArgumentException("invalid window");
+		}
+		this.mc = mc;
+		this.bucketSeconds = bucketLength.getSeconds();
+		this.buckets = new MarkovChain[bucketCount];
+	}
+
+	/**
+	 * @return the live MarkovChain, trained on the tweets in the window
+	 */
+	public MarkovChain getChain() {
+		return mc;
+	}
+
+	/**
+	 * Parses a timestamp like "2019-10-09 22:26:06".
+	 *
+	 * @param timestamp - the timestamp to parse
+	 * @return the number of seconds since the epoch, taking the timestamp to be in
+	 *         UTC
+	 * @throws IllegalArgumentException if the timestamp is null or malformed
+	 */
+	static long parseTimestamp(String timestamp) {
+		if (timestamp == null) {
+			throw new IllegalArgumentException("timestamp cannot be null");
+		}
+		try {
+			return LocalDateTime.parse(timestamp.trim(), TIMESTAMP).toEpochSecond(ZoneOffset.UTC);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("malformed timestamp: " + timestamp);
+		}
+	}
+
+	/**
+	 * Moves the end of the window forward to the given time, forgetting the
+	 * tweets of every bucket that falls out of it. Moving it backward does
+	 * nothing.
+	 *
+	 * @param epochSecond - the current time, in seconds since the epoch
+	 */
+	public void advanceTo(long epochSecond) {
+		long bucket = Math.floorDiv(epochSecond, bucketSeconds);
+		if (newestBucket == Long.MIN_VALUE) {
+			newestBucket = bucket;
+			return;
+		}
+		// only the buckets that were in the window need to be evicted
+		long evictions = Math.min(bucket - newestBucket, buckets.length);
+		for (long b = bucket - evictions + 1; b <= bucket; b++) {
+			int slot = (int) Math.floorMod(b, (long) buckets.length);
+			if (buckets[slot] != null) {
+				mc.subtract(buckets[slot]);
+				buckets[slot] = null;
+			}
+		}
+		newestBucket = Math.max(newestBucket, bucket);
+	}
+
+	/**
+	 * Trains the chain on the sentences of a tweet posted at the given time, after
+	 * moving the window forward to that time if it is newer than every tweet seen
+	 * so far.
+	 *
+	 * @param epochSecond - when the tweet was posted, in seconds since the epoch
+	 * @param sentences   - the (non-null) cleaned sentences of the tweet
+	 * @return true if the tweet was trained, or false if it is older than the
+	 *         window
+	 */
+	public boolean train(long epochSecond, List<List<String>> sentences) {
+		advanceTo(epochSecond);
+		long bucket = Math.floorDiv(epochSecond, bucketSeconds);
+		if (bucket <= newestBucket - buckets.length) {
+			return false;
+		}
+		int slot = (int) Math.floorMod(bucket, (long) buckets.length);
+		if (buckets[slot] == null) {
+			buckets[slot] = new MarkovChain(mc.ng);
+		}
+		for (List<String> sentence : sentences) {
+			mc.train(sentence.iterator());
+			buckets[slot].train(sentence.iterator());
+		}
+		return true;
+	}
+
+	/**
+	 * Trains the chain on one line of a CSV file, like
+	 * TweetParser.csvLineToTrainingData, using the timestamp in the given column.
+	 *
+	 * @param csvLine         - a line of a CSV file
+	 * @param timestampColumn - the column holding the time the tweet was posted
+	 * @param tweetColumn     - the column holding the text of the tweet
+	 * @return true if the tweet was trained, or false if it is older than the
+	 *         window or the line has no valid timestamp (such as the continuation
+	 *         of a tweet spanning several lines)
+	 */
+	public boolean trainCsvLine(String csvLine, int timestampColumn, int tweetColumn) {
+		return trainCsvLine(csvLine, timestampColumn, line -> TweetParser.csvLineToTrainingData(line, tweetColumn));
+	}
+
+	/**
+	 * Does the same as trainCsvLine(csvLine, timestampColumn, tweetColumn), but
+	 * cleans the line with the given function, e.g. to filter or deduplicate the
+	 * tweets (see TrainingOptions). The function is only called once the line is
+	 * known to have a timestamp within the window, so a deduplicator does not
+	 * count tweets that were never trained.
+	 *
+	 * @param csvLine         - a line of a CSV file
+	 * @param timestampColumn - the column holding the time the tweet was posted
+	 * @param cleaner         - the (non-null) function turning the line into the
+	 *                        sentences to train on
+	 * @return true if the tweet was trained, or false if it is older than the
+	 *         window or the line has no valid timestamp
+	 */
+	boolean trainCsvLine(String csvLine, int timestampColumn, Function<String, List<List<String>>> cleaner) {
+		long epochSecond;
+		try {
+			epochSecond = parseTimestamp(TweetParser.extractColumn(csvLine, timestampColumn));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		advanceTo(epochSecond);
+		if (Math.floorDiv(epochSecond, bucketSeconds) <= newestBucket - buckets.length) {
+			return false;
+		}
+		return train(epochSecond, cleaner.apply(csvLine));
+	}
+}
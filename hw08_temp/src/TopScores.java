@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the entries with the highest scores among all the (score, id) pairs
+ * offered to it, up to a fixed capacity. It is a min-heap on primitive arrays,
+ * so the lowest kept score can be found and replaced in O(log capacity) without
+ * allocating anything per offer.
+ */
+class TopScores {
+
+	private final double[] scores;
+	private final int[] ids;
+	private int size = 0;
+
+	/**
+	 * @param capacity - the number of entries to keep
+	 * @throws IllegalArgumentException if capacity is less than 1
+	 */
+	TopScores(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		scores = new double[capacity];
+		ids = new int[capacity];
+	}
+
+	/**
+	 * @return the number of entries kept so far
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return true if a new entry is only kept when it beats the lowest kept score
+	 */
+	boolean isFull() {
+		return size == scores.length;
+	}
+
+	/**
+	 * @return the lowest score kept, or negative infinity if there is room left
+	 */
+	double threshold() {
+		return isFull() ? scores[0] : Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Offers an entry, which is kept if there is room left or if its score is
+	 * higher than the lowest kept score (which is then dropped).
+	 *
+	 * @param score - the score of the entry
+	 * @param id    - the entry's id
+	 * @return true if the entry was kept
+	 */
+	boolean offer(double score, int id) {
+		if (size < scores.length) {
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (scores[parent] <= score) {
+					break;
+				}
+				scores[i] = scores[parent];
+				ids[i] = ids[parent];
+				i = parent;
+			}
+			scores[i] = score;
+			ids[i] = id;
+			return true;
+		}
+		if (score <= scores[0]) {
+			return false;
+		}
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && scores[child + 1] < scores[child]) {
+				child++;
+			}
+			if (scores[child] >= score) {
+				break;
+			}
+			scores[i] = scores[child];
+			ids[i] = ids[child];
+			i = child;
+		}
+		scores[i] = score;
+		ids[i] = id;
+		return true;
+	}
+
+	/**
+	 * @return the slots of the kept entries (see idAt), from the highest score to
+	 *         the lowest
+	 */
+	int[] slotsByScore() {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+		int[] sorted = new int[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = order[i];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Kept entries are stored in slots 0 to size() - 1, in no particular order.
+	 *
+	 * @param slot - a slot between 0 and size() - 1
+	 * @return the id of the entry in that slot
+	 */
+	int idAt(int slot) {
+		return ids[slot];
+	}
+
+	/**
+	 * @param slot - a slot between 0 and size() - 1
+	 * @return the score of the entry in that slot
+	 */
+	double scoreAt(int slot) {
+		return scores[slot];
+	}
+}
@@ -0,0 +1,26 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the training of a MarkovChain on a
+ * batch of sentences (see MarkovChain.trainAll).
+ */
+@Name("twitterbot.TrainBatch")
+@Label("Train Batch")
+@Category("TwitterBot")
+@Description("A batch of sentences added to a MarkovChain")
+class TrainBatchEvent extends Event {
+
+	@Label("Sentences")
+	int sentences;
+
+	@Label("Words")
+	long words;
+
+	@Label("States")
+	@Description("Words with successors in the chain after the batch")
+	int states;
+}
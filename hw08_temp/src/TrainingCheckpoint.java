@@ -0,0 +1,234 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A TrainingCheckpoint lets a long training run pick up where it left off after
+ * a crash or restart.
+ *
+ * While training, the trainer periodically hands over a delta (a MarkovChain
+ * trained on only the lines read since the previous checkpoint) together with
+ * the byte offset in the input file reached so far. Deltas are appended to the
+ * checkpoint file by a background thread, so the training thread does not wait
+ * on the disk unless MAX_PENDING deltas are already waiting to be written.
+ *
+ * When training starts again, restore() replays every complete delta into a
+ * fresh MarkovChain and returns the offset at which reading should resume. A
+ * delta that was only partly written when the process died is detected by its
+ * checksum and discarded.
+ *
+ * The file starts with a header identifying the input file (its absolute path,
+ * size, modification time and a CRC32 of its first HEADER_BYTES bytes), so
+ * that progress is never resumed on a different or rewritten input. Each delta
+ * is then stored as a block: its length, the block body (the input offset
+ * followed by the delta in ChainDelta format) and a CRC32 of the body.
+ */
+class TrainingCheckpoint implements Closeable {
+
+	private static final int MAGIC = 0x4d4b4332; // "MKC2"
+	// the number of bytes of the input file covered by the header's checksum
+	static final int HEADER_BYTES = 64 * 1024;
+	// the number of deltas that may wait to be written before submit() blocks
+	static final int MAX_PENDING = 4;
+
+	private final Path path;
+	private final File input;
+	private final ExecutorService writer;
+	private final Semaphore pending = new Semaphore(MAX_PENDING);
+	private volatile IOException failure;
+
+	/**
+	 * Opens (or creates) the checkpoint file located at filePath, for training on
+	 * the file located at inputPath.
+	 *
+	 * @param filePath  - the path to the checkpoint file
+	 * @param inputPath - the path to the input file being trained on
+	 * @throws IllegalArgumentException if filePath or inputPath is null
+	 */
+	TrainingCheckpoint(String filePath, String inputPath) {
+		if (filePath == null || inputPath == null) {
+			throw new IllegalArgumentException("checkpoint and input paths cannot be null");
+		}
+		this.path = Paths.get(filePath);
+		this.input = new File(inputPath);
+		this.writer = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "training-checkpoint-writer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Replays every complete delta in the checkpoint file into mc and returns the
+	 * input offset recorded by the last of them. Any incomplete block at the end
+	 * of the file is cut off so that new deltas are appended after valid data.
+	 *
+	 * @param mc - the (freshly created) MarkovChain to restore into
+	 * @return the byte offset in the input file to resume training from, or 0 if
+	 *         there is no checkpoint yet
+	 * @throws UncheckedIOException if the checkpoint file cannot be read, is not a
+	 *                              checkpoint file, or was written for a different
+	 *                              input file (or a different version of it)
+	 */
+	long restore(MarkovChain mc) {
+		long resumeOffset = 0;
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			byte[] identity = inputIdentity();
+			if (file.length() >= 4 && file.readInt() != MAGIC) {
+				throw new IOException(path + " is not a training checkpoint");
+			}
+			if (file.length() < 8 + identity.length) {
+				// new, or the header itself was cut short
+				file.setLength(0);
+				file.writeInt(MAGIC);
+				file.writeInt(identity.length);
+				file.write(identity);
+				return 0;
+			}
+			byte[] stored = new byte[file.readInt()];
+			if (stored.length != identity.length) {
+				throw new IOException(path + " was written for a different input file");
+			}
+			file.readFully(stored);
+			if (!Arrays.equals(stored, identity)) {
+				throw new IOException(path + " was written for a different input file");
+			}
+			long validEnd = file.getFilePointer();
+			while (file.length() - validEnd >= 4) {
+				int length = file.readInt();
+				if (length < 8 || file.length() - file.getFilePointer() < (long) length + 8) {
+					break;
+				}
+				byte[] body = new byte[length];
+				file.readFully(body);
+				CRC32 crc = new CRC32();
+				crc.update(body);
+				if (file.readLong() != crc.getValue()) {
+					break;
+				}
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+				resumeOffset = in.readLong();
+				ChainDelta.readInto(in, mc);
+				validEnd = file.getFilePointer();
+			}
+			file.setLength(validEnd);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return resumeOffset;
+	}
+
+	/**
+	 * Queues a delta to be appended to the checkpoint file, first waiting for one
+	 * of the queued deltas to be written if MAX_PENDING of them are waiting. The
+	 * delta must not be modified after it has been handed over.
+	 *
+	 * @param delta  - a MarkovChain trained on the lines read since the last
+	 *               checkpoint
+	 * @param offset - the byte offset in the input file just past those lines
+	 * @throws UncheckedIOException if an earlier checkpoint could not be written
+	 */
+	void submit(MarkovChain delta, long offset) {
+		checkFailure();
+		// wait for room if the disk cannot keep up, instead of buffering deltas
+		pending.acquireUninterruptibly();
+		writer.execute(() -> {
+			try {
+				if (failure == null) {
+					append(delta, offset);
+				}
+			} catch (IOException e) {
+				failure = e;
+			} finally {
+				pending.release();
+			}
+		});
+	}
+
+	/**
+	 * Waits for all queued deltas to be written and stops the writer thread.
+	 *
+	 * @throws UncheckedIOException if any checkpoint could not be written
+	 */
+	@Override
+	public void close() {
+		writer.shutdown();
+		try {
+			while (!writer.awaitTermination(1, TimeUnit.SECONDS)) {
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+	}
+
+	/**
+	 * @return the identity of the input file, as stored in the header
+	 */
+	private byte[] inputIdentity() throws IOException {
+		byte[] head = new byte[HEADER_BYTES];
+		int read = 0;
+		try (FileInputStream in = new FileInputStream(input)) {
+			int n;
+			while (read < head.length && (n = in.read(head, read, head.length - read)) > 0) {
+				read += n;
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(head, 0, read);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF(input.getAbsolutePath());
+		out.writeLong(input.length());
+		out.writeLong(input.lastModified());
+		out.writeLong(crc.getValue());
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private void append(MarkovChain delta, long offset) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeLong(offset);
+		ChainDelta.write(delta, out);
+		out.flush();
+		byte[] body = bytes.toByteArray();
+
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		ByteBuffer block = ByteBuffer.allocate(body.length + 12);
+		block.putInt(body.length).put(body).putLong(crc.getValue());
+		block.flip();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			while (block.hasRemaining()) {
+				channel.write(block);
+			}
+			channel.force(false);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+import java.time.Duration;
+
+/**
+ * TrainingOptions say how a TwitterBot is trained on a CSV file (see
+ * TwitterBot(csvFile, tweetColumn, ng, options)). By default, the bot is
+ * trained on every line of the file. Each method below changes one aspect of
+ * the training and returns the same TrainingOptions, so that options can be
+ * combined, e.g.
+ *
+ * new TrainingOptions().filter(CsvRowFilter.ALL.whereEquals(0, "me"))
+ * .deduplicate(TweetDeduplicator.exact()).sample(1000)
+ *
+ * Every option is applied to each line the same way, whichever lines are read:
+ * a line is skipped unless filter accepts it, then its tweet is skipped if the
+ * deduplicator has seen it, and the remaining words are looked up in the
+ * vocabulary. A windowed bot also skips lines older than its window, and a bot
+ * keeps applying its options to the lines it trains on with follow().
+ *
+ * Checkpointing reads the file from where the checkpoint stopped, so it cannot
+ * be combined with sampling or with a time window (whose buckets are not part
+ * of the checkpoint).
+ */
+public class TrainingOptions {
+
+	CsvRowFilter filter = CsvRowFilter.ALL;
+	TweetDeduplicator deduplicator;
+	Vocabulary vocabulary;
+
+	// sampleSize < 0 means the whole file is read
+	int sampleSize = -1;
+	boolean cachedIndex;
+	String indexFile;
+
+	String checkpointFile;
+	int checkpointInterval;
+
+	// bucketLength == null means there is no window
+	int timestampColumn;
+	Duration bucketLength;
+	int bucketCount;
+
+	/**
+	 * Trains only on the lines accepted by filter, e.g. to train on a single
+	 * author or date range.
+	 *
+	 * @param filter - the (non-null) CsvRowFilter selecting the lines to train on
+	 * @return these TrainingOptions
+	 * @throws IllegalArgumentException if filter is null
+	 */
+	public TrainingOptions filter(CsvRowFilter filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("filter cannot be null");
+		}
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Trains only on the tweets that deduplicator has not seen yet, so that
+	 * duplicate tweets (such as retweets) are only counted once.
+	 *
+	 * @param deduplicator - the TweetDeduplicator dropping duplicate tweets, or
+	 *                     null to keep them all
+	 * @return these TrainingOptions
+	 */
+	public TrainingOptions deduplicate(TweetDeduplicator deduplicator) {
+		this.deduplicator = deduplicator;
+		return this;
+	}
+
+	/**
+	 * Looks up every word in the given Vocabulary instead of creating a new
+	 * String for each occurrence (see TweetParser.csvFileToTrainingIds). Bots
+	 * trained with the same Vocabulary share a single String for each word they
+	 * have in common.
+	 *
+	 * @param vocabulary - the Vocabulary in which words are looked up, or null to
+	 *                   create Strings as usual
+	 * @return these TrainingOptions
+	 */
+	public TrainingOptions vocabulary(Vocabulary vocabulary) {
+		this.vocabulary = vocabulary;
+		return this;
+	}
+
+	/**
+	 * Trains on a random sample of the records of the file, picked with the
+	 * bot's NumberGenerator. The sampled records are read directly through the
+	 * file's CsvRecordIndex (built the first time and kept in its cache
+	 * directory, see CsvRecordIndex.open), so the rest of the file is not read.
+	 *
+	 * @param sampleSize - the number of records to train on, or more than the
+	 *                   number of records in the file to train on all of them
+	 * @return these TrainingOptions
+	 * @throws IllegalArgumentException if sampleSize is negative
+	 */
+	public TrainingOptions sample(int sampleSize) {
+		return sample(sampleSize, true, null);
+	}
+
+	/**
+	 * Does the same as sample(sampleSize), but keeps the CsvRecordIndex of the
+	 * file in the given index file.
+	 *
+	 * @param sampleSize - the number of records to train on, or more than the
+	 *                   number of records in the file to train on all of them
+	 * @param indexFile  - the path of the index file, or null to build the index
+	 *                   in memory without saving it
+	 * @return these TrainingOptions
+	 * @throws IllegalArgumentException if sampleSize is negative
+	 */
+	public TrainingOptions sample(int sampleSize, String indexFile) {
+		return sample(sampleSize, false, indexFile);
+	}
+
+	private TrainingOptions sample(int sampleSize, boolean cachedIndex, String indexFile) {
+		if (sampleSize < 0) {
+			throw new IllegalArgumentException("sampleSize cannot be negative");
+		}
+		this.sampleSize = sampleSize;
+		this.cachedIndex = cachedIndex;
+		this.indexFile = indexFile;
+		return this;
+	}
+
+	/**
+	 * Saves the progress of the training to a checkpoint file as it goes. If the
+	 * checkpoint file already holds progress from an earlier (interrupted) run on
+	 * the same CSV file, that progress is restored and training resumes from the
+	 * line where it stopped (see TrainingCheckpoint).
+	 *
+	 * @param checkpointFile     - a (non-null) path to the checkpoint file to
+	 *                           restore from and save progress to
+	 * @param checkpointInterval - the number of CSV lines to read between
+	 *                           checkpoints
+	 * @return these TrainingOptions
+	 * @throws IllegalArgumentException if checkpointFile is null or
+	 *                                  checkpointInterval is less than 1
+	 */
+	public TrainingOptions checkpoint(String checkpointFile, int checkpointInterval) {
+		if (checkpointFile == null || checkpointInterval < 1) {
+			throw new IllegalArgumentException("checkpointFile cannot be null and checkpointInterval must be positive");
+		}
+		this.checkpointFile = checkpointFile;
+		this.checkpointInterval = checkpointInterval;
+		return this;
+	}
+
+	/**
+	 * Trains only on the most recent tweets, according to their timestamps (see
+	 * TimeWindowedChain). The window ends at the newest tweet seen so far, so the
+	 * bot keeps forgetting old tweets as newer ones are trained, e.g. by
+	 * follow().
+	 *
+	 * @param timestampColumn - the column in the CSV file where the time of the
+	 *                        tweet is stored, like "2019-10-09 22:26:06"
+	 * @param bucketLength    - the length of time covered by each bucket of the
+	 *                        window (at least a second)
+	 * @param bucketCount     - the number of buckets in the window
+	 * @return these TrainingOptions
+	 * @throws IllegalArgumentException if timestampColumn is negative,
+	 *                                  bucketLength is null or shorter than a
+	 *                                  second or bucketCount is less than 1
+	 */
+	public TrainingOptions window(int timestampColumn, Duration bucketLength, int bucketCount) {
+		if (timestampColumn < 0 || bucketLength == null || bucketLength.getSeconds() < 1 || bucketCount < 1) {
+			throw new IllegalArgumentException("invalid window");
+		}
+		this.timestampColumn = timestampColumn;
+		this.bucketLength = bucketLength;
+		this.bucketCount = bucketCount;
+		return this;
+	}
+}
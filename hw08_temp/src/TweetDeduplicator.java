@@ -0,0 +1,222 @@
+/**
+ * A TweetDeduplicator remembers the tweets it has been given so that duplicates
+ * (e.g. retweets) can be dropped before they are cleaned and trained, which
+ * would otherwise inflate their counts in the MarkovChain.
+ *
+ * Tweets are compared after normalizing them: letters are put in lower case,
+ * runs of whitespace count as a single space, leading and trailing whitespace
+ * is ignored, and so are leading "RT @user:" retweet markers. Only a 64-bit
+ * fingerprint of the normalized text is kept, computed in a single pass
+ * without creating any String.
+ *
+ * exact() keeps every fingerprint in an open addressing table of longs (about
+ * 16 to 32 bytes per distinct tweet). Two different tweets are only taken for
+ * duplicates if their fingerprints collide, which is very unlikely (about 1 in
+ * 4,000 for 100 million tweets). bloom() uses a Bloom filter of a fixed size
+ * instead, which takes a bounded amount of memory but drops a small fraction of
+ * distinct tweets as false positives.
+ *
+ * A TweetDeduplicator is not thread-safe.
+ */
+public class TweetDeduplicator {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// for exact(): open addressing table of fingerprints, 0 marking an empty slot
+	private long[] table;
+	private int size;
+
+	// for bloom(): the bits of the filter and the number of bits set per tweet
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashes;
+
+	private long seen;
+	private long skipped;
+
+	private TweetDeduplicator(long[] bits, long bitCount, int hashes) {
+		this.bits = bits;
+		this.bitCount = bitCount;
+		this.hashes = hashes;
+		if (bits == null) {
+			table = new long[1024];
+		}
+	}
+
+	/**
+	 * @return a TweetDeduplicator that remembers the fingerprint of every distinct
+	 *         tweet
+	 */
+	public static TweetDeduplicator exact() {
+		return new TweetDeduplicator(null, 0, 0);
+	}
+
+	/**
+	 * Creates a TweetDeduplicator backed by a Bloom filter sized for the given
+	 * number of distinct tweets and false positive rate. Past that many tweets,
+	 * the false positive rate goes up.
+	 *
+	 * @param expectedTweets    - the number of distinct tweets expected
+	 * @param falsePositiveRate - the fraction of distinct tweets that may be taken
+	 *                          for duplicates, between 0 and 1 (exclusive)
+	 * @return the TweetDeduplicator
+	 * @throws IllegalArgumentException if an argument is out of range
+	 */
+	public static TweetDeduplicator bloom(long expectedTweets, double falsePositiveRate) {
+		if (expectedTweets < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("invalid Bloom filter configuration");
+		}
+		double ln2 = Math.log(2);
+		long bitCount = Math.max(64, (long) Math.ceil(-expectedTweets * Math.log(falsePositiveRate) / (ln2 * ln2)));
+		bitCount = (bitCount + 63) & ~63L;
+		if (bitCount / 64 > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Bloom filter too large");
+		}
+		int hashes = (int) Math.max(1, Math.round((double) bitCount / expectedTweets * ln2));
+		return new TweetDeduplicator(new long[(int) (bitCount / 64)], bitCount, hashes);
+	}
+
+	/**
+	 * Adds a tweet to the tweets seen so far.
+	 *
+	 * @param tweet - the (non-null) text of a tweet
+	 * @return true if the tweet is new, false if it is a duplicate that should be
+	 *         skipped
+	 * @throws IllegalArgumentException if tweet is null
+	 */
+	public boolean add(String tweet) {
+		if (tweet == null) {
+			throw new IllegalArgumentException("tweet cannot be null");
+		}
+		seen++;
+		long fingerprint = fingerprint(tweet);
+		boolean added = bits == null ? addExact(fingerprint) : addBloom(fingerprint);
+		if (!added) {
+			skipped++;
+		}
+		return added;
+	}
+
+	/**
+	 * @return the number of tweets given to add()
+	 */
+	public long seen() {
+		return seen;
+	}
+
+	/**
+	 * @return the number of tweets add() found to be duplicates
+	 */
+	public long skipped() {
+		return skipped;
+	}
+
+	/**
+	 * Computes the 64-bit fingerprint of the normalized text of a tweet (see
+	 * TweetDeduplicator): FNV-1a over its characters, followed by the finalizer
+	 * of MurmurHash3 to spread the bits.
+	 */
+	static long fingerprint(String tweet) {
+		int length = tweet.length();
+		int i = skipRetweetMarkers(tweet, 0);
+		long hash = FNV_OFFSET;
+		boolean pendingSpace = false;
+		for (; i < length; i++) {
+			char c = tweet.charAt(i);
+			if (Character.isWhitespace(c)) {
+				pendingSpace = true;
+				continue;
+			}
+			if (pendingSpace) {
+				hash = (hash ^ ' ') * FNV_PRIME;
+				pendingSpace = false;
+			}
+			c = Character.toLowerCase(c);
+			hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+			hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * @return the index of the first character after any leading whitespace and
+	 *         "RT @user:" markers, starting from i
+	 */
+	private static int skipRetweetMarkers(String tweet, int i) {
+		while (true) {
+			while (i < tweet.length() && Character.isWhitespace(tweet.charAt(i))) {
+				i++;
+			}
+			if (!tweet.regionMatches(true, i, "rt @", 0, 4)) {
+				return i;
+			}
+			int colon = i + 4;
+			while (colon < tweet.length() && tweet.charAt(colon) != ':'
+					&& !Character.isWhitespace(tweet.charAt(colon))) {
+				colon++;
+			}
+			if (colon == tweet.length() || tweet.charAt(colon) != ':') {
+				return i;
+			}
+			i = colon + 1;
+		}
+	}
+
+	private boolean addExact(long fingerprint) {
+		if (fingerprint == 0) {
+			fingerprint = 1;
+		}
+		if (2 * (size + 1) > table.length) {
+			rehash();
+		}
+		int mask = table.length - 1;
+		for (int slot = (int) fingerprint & mask;; slot = (slot + 1) & mask) {
+			if (table[slot] == fingerprint) {
+				return false;
+			} else if (table[slot] == 0) {
+				table[slot] = fingerprint;
+				size++;
+				return true;
+			}
+		}
+	}
+
+	private void rehash() {
+		long[] old = table;
+		table = new long[old.length * 2];
+		int mask = table.length - 1;
+		for (long fingerprint : old) {
+			if (fingerprint != 0) {
+				int slot = (int) fingerprint & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = fingerprint;
+			}
+		}
+	}
+
+	private boolean addBloom(long fingerprint) {
+		// the bit indexes are derived from two hashes of the fingerprint (Kirsch
+		// and Mitzenmacher)
+		long h1 = fingerprint;
+		long h2 = fingerprint * 0x9e3779b97f4a7c15L | 1;
+		boolean added = false;
+		for (int k = 0; k < hashes; k++) {
+			long bit = Long.remainderUnsigned(h1 + k * h2, bitCount);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				added = true;
+			}
+		}
+		return added;
+	}
+}
@@ -0,0 +1,160 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+
+/**
+ * A TweetFollower follows a CSV file that another program keeps appending
+ * tweets to (like "tail -f"), and hands every new line to a sink as soon as it
+ * has been written, e.g. to train a TwitterBot on it (see TwitterBot.follow).
+ *
+ * Once started, a background thread waits for the operating system to report
+ * changes to the file's directory through a WatchService, so no CPU is used
+ * while the file does not change. After a change, only the bytes past the
+ * last line read are read (see OffsetLineIterator), and a line is only handed
+ * over once its terminator has been written. If the file shrinks (it was
+ * truncated or replaced), it is read again from the start.
+ *
+ * poll() can also be called directly to read new lines without a background
+ * thread.
+ */
+public class TweetFollower implements Closeable {
+
+	private final File file;
+	private final Consumer<String> sink;
+	private long offset;
+
+	private WatchService watcher;
+	private Thread thread;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param filePath    - the path to the file to follow (it does not need to
+	 *                    exist yet)
+	 * @param startOffset - the byte offset to start reading from, e.g. 0 or the
+	 *                    size of the part of the file that was already read
+	 * @param sink        - the function to call with every new line
+	 * @throws IllegalArgumentException if filePath or sink is null, or
+	 *                                  startOffset is negative
+	 */
+	public TweetFollower(String filePath, long startOffset, Consumer<String> sink) {
+		if (filePath == null || sink == null || startOffset < 0) {
+			throw new IllegalArgumentException("filePath and sink cannot be null and startOffset cannot be negative");
+		}
+		this.file = new File(filePath).getAbsoluteFile();
+		this.sink = sink;
+		this.offset = startOffset;
+	}
+
+	/**
+	 * @return the byte offset in the file just past the last line handed to the
+	 *         sink
+	 */
+	public synchronized long offset() {
+		return offset;
+	}
+
+	/**
+	 * Reads the complete lines appended to the file since the last call and hands
+	 * them to the sink, in order.
+	 *
+	 * @return the number of lines read
+	 */
+	public synchronized int poll() {
+		long size = file.length();
+		if (size < offset) {
+			offset = 0;
+		}
+		if (size == offset || !file.isFile()) {
+			return 0;
+		}
+		int lines = 0;
+		try (OffsetLineIterator it = new OffsetLineIterator(file.getPath(), offset, true)) {
+			while (it.hasNext()) {
+				sink.accept(it.next());
+				offset = it.offset();
+				lines++;
+			}
+		} catch (IllegalArgumentException e) {
+			// the file was removed in the meantime
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads the lines already appended past the start offset, then starts a
+	 * daemon thread that reads new lines whenever the file changes, until
+	 * close() is called.
+	 *
+	 * @throws IOException           if the file's directory cannot be watched
+	 * @throws IllegalStateException if the TweetFollower was already started or
+	 *                               closed
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null || closed) {
+			throw new IllegalStateException("TweetFollower already started");
+		}
+		Path directory = file.getParentFile().toPath();
+		watcher = directory.getFileSystem().newWatchService();
+		directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		// watch first so that no change between this poll and the thread is missed
+		poll();
+		thread = new Thread(this::watch, "TweetFollower " + file.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void watch() {
+		Path name = Paths.get(file.getName());
+		try {
+			while (!closed) {
+				WatchKey key = watcher.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					// after an overflow some events were lost, so check anyway
+					changed = changed || event.kind() == StandardWatchEventKinds.OVERFLOW
+							|| name.equals(event.context());
+				}
+				key.reset();
+				if (changed) {
+					poll();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Stops following the file. Lines already handed to the sink are not
+	 * affected.
+	 */
+	@Override
+	public void close() {
+		Thread running;
+		synchronized (this) {
+			closed = true;
+			running = thread;
+			if (watcher != null) {
+				try {
+					watcher.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		if (running != null && running != Thread.currentThread()) {
+			try {
+				running.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -222,6 +222,143 @@ public class TweetParser {
 		return cleanTweet;
 	}
 
+	/**
+	 * Does the same as parseAndCleanTweet(), but returns each sentence as the ids
+	 * of its words in vocabulary (adding new words to it) instead of as a list of
+	 * Strings.
+	 * 
+	 * The words are cleaned straight from the characters of the tweet and looked
+	 * up in the vocabulary without creating a String for each of them, so the
+	 * only Strings created are the ones for words the vocabulary has never seen.
+	 * Words containing non-ASCII characters or line breaks are rare, and are
+	 * cleaned with cleanWord() instead so that the result is always the same as
+	 * parseAndCleanTweet().
+	 * 
+	 * @param tweet      - a String that will be split into sentences, each of
+	 *                   which is cleaned as described above (assumed to be
+	 *                   non-null)
+	 * @param vocabulary - the Vocabulary in which the words are looked up
+	 * 
+	 * @return a (non-null) list of sentences, each of which is a (non-empty) array
+	 *         of the ids of the clean words drawn from the tweet.
+	 */
+	static List<int[]> parseAndCleanTweetIds(String tweet, Vocabulary vocabulary) {
+		List<int[]> sentences = new ArrayList<int[]>();
+		String text = removeURLs(tweet);
+		char[] word = new char[text.length()];
+		int[] ids = new int[text.length() / 2 + 1];
+		int sentenceLength = 0;
+		int start = 0;
+		for (int end = 0; end <= text.length(); end++) {
+			char c = end < text.length() ? text.charAt(end) : '.';
+			boolean endOfSentence = c == '.' || c == '?' || c == '!' || c == ';';
+			if (c != ' ' && !endOfSentence) {
+				continue;
+			}
+			int id = cleanWordId(text, start, end, word, vocabulary);
+			if (id >= 0) {
+				ids[sentenceLength++] = id;
+			}
+			if (endOfSentence && sentenceLength > 0) {
+				sentences.add(Arrays.copyOf(ids, sentenceLength));
+				sentenceLength = 0;
+			}
+			start = end + 1;
+		}
+		return sentences;
+	}
+
+	/**
+	 * Cleans the word text[from] to text[to - 1] like cleanWord() and looks it up
+	 * in vocabulary, using buffer to hold its lower case characters.
+	 * 
+	 * @return the id of the clean word, or -1 if it is a "bad" or empty word
+	 */
+	private static int cleanWordId(String text, int from, int to, char[] buffer, Vocabulary vocabulary) {
+		while (from < to && text.charAt(from) <= ' ') {
+			from++;
+		}
+		while (to > from && text.charAt(to - 1) <= ' ') {
+			to--;
+		}
+		if (from == to) {
+			return -1;
+		}
+		int length = 0;
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			if (c >= 128 || c == '\n' || c == '\r') {
+				String cleaned = cleanWord(text.substring(from, to));
+				return cleaned == null ? -1 : vocabulary.id(cleaned);
+			}
+			if (c >= 'A' && c <= 'Z') {
+				c = (char) (c + ('a' - 'A'));
+			} else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '\'')) {
+				return -1;
+			}
+			buffer[length++] = c;
+		}
+		return vocabulary.id(buffer, 0, length);
+	}
+
+	/**
+	 * Cleans the tweet stored in one line of a CSV file into training data, using
+	 * the same steps as csvFileToTrainingData() does for every line of a file.
+	 * Lines without a tweet in tweetColumn produce no sentences.
+	 * 
+	 * @param csvLine     - a line extracted from a CSV file
+	 * @param tweetColumn - the column of the line that contains the tweet
+	 * @return a (non-null) list of sentences, each of which is a (non-empty)
+	 *         sequence of clean words drawn from the tweet.
+	 */
+	static List<List<String>> csvLineToTrainingData(String csvLine, int tweetColumn) {
+		String tweet = extractColumn(csvLine, tweetColumn);
+		if (tweet == null) {
+			return new ArrayList<List<String>>();
+		}
+		return parseAndCleanTweet(tweet);
+	}
+
+	/**
+	 * Splits a record of a CSV file (see CsvRecordIndex) into the lines a
+	 * FileLineIterator would read for it. A record that spans several lines, such
+	 * as a quoted tweet with line breaks, is cleaned one line at a time like the
+	 * rest of the file, so training on the records of a file trains the same
+	 * model as training on its lines.
+	 * 
+	 * @param csvRecord - a record extracted from a CSV file
+	 * @return the lines of the record
+	 */
+	static String[] csvRecordLines(String csvRecord) {
+		// the same line terminators as BufferedReader.readLine()
+		return csvRecord.split("\r\n|\r|\n");
+	}
+
+	/**
+	 * Extracts the tweet of one line of a CSV file, the same way as
+	 * csvFileToTweets() does for every line of a file: empty lines and the lines
+	 * rejected by filter are skipped, and so are empty tweets and the ones that
+	 * deduplicator has already seen.
+	 * 
+	 * @param csvLine      - a line extracted from a CSV file
+	 * @param tweetColumn  - the column of the line that contains the tweet
+	 * @param filter       - the (non-null) CsvRowFilter selecting the lines to use
+	 * @param deduplicator - the TweetDeduplicator dropping duplicate tweets, or
+	 *                     null to keep them all
+	 * @return the (not yet cleaned) tweet, or null if the line is skipped
+	 */
+	static String csvLineToTweet(String csvLine, int tweetColumn, CsvRowFilter filter,
+			TweetDeduplicator deduplicator) {
+		if (csvLine == null || csvLine.length() == 0 || !filter.accepts(csvLine)) {
+			return null;
+		}
+		String tweet = extractColumn(csvLine, tweetColumn);
+		if (tweet == null || tweet.length() == 0 || deduplicator != null && !deduplicator.add(tweet)) {
+			return null;
+		}
+		return tweet;
+	}
+
 	/**
 	 * Given the argument pathToFile and the column that the tweets are in, use the
 	 * extractColumn and a FileIterator to extract every tweet from the CSV.
@@ -238,18 +375,70 @@ public class TweetParser {
 	 *                                  doesn't exist
 	 */
 	static List<String> csvFileToTweets(String pathToCSVFile, int tweetColumn) {
+		return csvFileToTweets(pathToCSVFile, tweetColumn, CsvRowFilter.ALL);
+	}
+
+	/**
+	 * Does the same as csvFileToTweets(pathToCSVFile, tweetColumn), but only
+	 * extracts the tweets of the lines accepted by filter. Lines are checked
+	 * before their tweet is extracted.
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param filter        - the (non-null) CsvRowFilter selecting the lines to use
+	 * @return a List of tweet Strings, none of which are null (but that are not yet
+	 *         cleaned)
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile or filter is null or if
+	 *                                  the file doesn't exist
+	 */
+	static List<String> csvFileToTweets(String pathToCSVFile, int tweetColumn, CsvRowFilter filter) {
+		return csvFileToTweets(pathToCSVFile, tweetColumn, filter, null);
+	}
+
+	/**
+	 * Does the same as csvFileToTweets(pathToCSVFile, tweetColumn, filter), but
+	 * also leaves out the tweets that deduplicator has already seen (see
+	 * TweetDeduplicator), before they are cleaned.
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param filter        - the (non-null) CsvRowFilter selecting the lines to use
+	 * @param deduplicator  - the TweetDeduplicator dropping duplicate tweets, or
+	 *                      null to keep them all
+	 * @return a List of tweet Strings, none of which are null (but that are not yet
+	 *         cleaned)
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile or filter is null or if
+	 *                                  the file doesn't exist
+	 */
+	static List<String> csvFileToTweets(String pathToCSVFile, int tweetColumn, CsvRowFilter filter,
+			TweetDeduplicator deduplicator) {
+		if (filter == null) {
+			throw new IllegalArgumentException("filter cannot be null");
+		}
 		ArrayList<String> tweets = new ArrayList<String>();
 		try {
 			FileLineIterator file = new FileLineIterator(pathToCSVFile);
+			ParseChunkEvent chunk = new ParseChunkEvent(pathToCSVFile);
 
 			while (file.hasNext()) {
-				String word = file.next();
-				if (word.length() > 0 && word != null) {
-					String extractedWord = extractColumn(word, tweetColumn);
-					if (extractedWord.length() > 0 && extractedWord != null) {
-						tweets.add(extractedWord);
-					}
+				String extractedWord = csvLineToTweet(file.next(), tweetColumn, filter, deduplicator);
+				if (extractedWord != null) {
+					tweets.add(extractedWord);
+					chunk.tweets++;
 				}
+				if (++chunk.lines == ParseChunkEvent.LINES) {
+					chunk.finish();
+					chunk = new ParseChunkEvent(pathToCSVFile);
+				}
+			}
+			if (chunk.lines > 0) {
+				chunk.finish();
 			}
 		} catch (IllegalArgumentException e) {
 			throw new IllegalArgumentException("path to csv file is null or the file does not exist");
@@ -258,6 +447,95 @@ public class TweetParser {
 		return tweets;
 	}
 
+	/**
+	 * Does the same as csvFileToTrainingData(), but returns each sentence as the
+	 * ids of its words in vocabulary (see parseAndCleanTweetIds), which avoids
+	 * creating a String for every word of the file.
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param vocabulary    - the Vocabulary in which the words are looked up
+	 * @return a list of training data examples
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile is null or if the file
+	 *                                  doesn't exist
+	 */
+	public static List<int[]> csvFileToTrainingIds(String pathToCSVFile, int tweetColumn, Vocabulary vocabulary) {
+		return csvFileToTrainingIds(pathToCSVFile, tweetColumn, vocabulary, null);
+	}
+
+	/**
+	 * Does the same as csvFileToTrainingIds(pathToCSVFile, tweetColumn,
+	 * vocabulary), but leaves out the tweets that deduplicator has already seen
+	 * (see TweetDeduplicator), before they are cleaned.
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param vocabulary    - the Vocabulary in which the words are looked up
+	 * @param deduplicator  - the TweetDeduplicator dropping duplicate tweets, or
+	 *                      null to keep them all
+	 * @return a list of training data examples
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile is null or if the file
+	 *                                  doesn't exist
+	 */
+	public static List<int[]> csvFileToTrainingIds(String pathToCSVFile, int tweetColumn, Vocabulary vocabulary,
+			TweetDeduplicator deduplicator) {
+		return csvFileToTrainingIds(pathToCSVFile, tweetColumn, vocabulary, CsvRowFilter.ALL, deduplicator);
+	}
+
+	/**
+	 * Does the same as csvFileToTrainingIds(pathToCSVFile, tweetColumn,
+	 * vocabulary, deduplicator), but only for the lines of the file accepted by
+	 * filter (see csvFileToTrainingData).
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param vocabulary    - the Vocabulary in which the words are looked up
+	 * @param filter        - the (non-null) CsvRowFilter selecting the lines to use
+	 * @param deduplicator  - the TweetDeduplicator dropping duplicate tweets, or
+	 *                      null to keep them all
+	 * @return a list of training data examples
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile or filter is null or if
+	 *                                  the file doesn't exist
+	 */
+	public static List<int[]> csvFileToTrainingIds(String pathToCSVFile, int tweetColumn, Vocabulary vocabulary,
+			CsvRowFilter filter, TweetDeduplicator deduplicator) {
+		if (filter == null) {
+			throw new IllegalArgumentException("filter cannot be null");
+		}
+		List<int[]> sentences = new ArrayList<int[]>();
+		FileLineIterator file;
+		try {
+			file = new FileLineIterator(pathToCSVFile);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("path to csv file is null or the file does not exist");
+		}
+		ParseChunkEvent chunk = new ParseChunkEvent(pathToCSVFile);
+		while (file.hasNext()) {
+			String tweet = csvLineToTweet(file.next(), tweetColumn, filter, deduplicator);
+			if (tweet != null) {
+				sentences.addAll(parseAndCleanTweetIds(tweet, vocabulary));
+				chunk.tweets++;
+			}
+			if (++chunk.lines == ParseChunkEvent.LINES) {
+				chunk.finish();
+				chunk = new ParseChunkEvent(pathToCSVFile);
+			}
+		}
+		if (chunk.lines > 0) {
+			chunk.finish();
+		}
+		return sentences;
+	}
+
 	/**
 	 * Given a path to a CSV file and the column from which to extract the tweet
 	 * data, computes a training set. The training set is a list of sentences, each
@@ -275,8 +553,52 @@ public class TweetParser {
 	 *                                  doesn't exist
 	 */
 	public static List<List<String>> csvFileToTrainingData(String pathToCSVFile, int tweetColumn) {
+		return csvFileToTrainingData(pathToCSVFile, tweetColumn, CsvRowFilter.ALL);
+	}
+
+	/**
+	 * Does the same as csvFileToTrainingData(pathToCSVFile, tweetColumn), but only
+	 * for the lines of the file accepted by filter, such as the tweets of one
+	 * author or of a date range. The other lines are skipped before their tweet is
+	 * extracted or cleaned.
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param filter        - the (non-null) CsvRowFilter selecting the lines to use
+	 * @return a list of training data examples
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile or filter is null or if
+	 *                                  the file doesn't exist
+	 */
+	public static List<List<String>> csvFileToTrainingData(String pathToCSVFile, int tweetColumn,
+			CsvRowFilter filter) {
+		return csvFileToTrainingData(pathToCSVFile, tweetColumn, filter, null);
+	}
+
+	/**
+	 * Does the same as csvFileToTrainingData(pathToCSVFile, tweetColumn, filter),
+	 * but leaves out the tweets that deduplicator has already seen (such as
+	 * retweets), before they are cleaned. Afterward, deduplicator.skipped() tells
+	 * how many tweets were left out.
+	 * 
+	 * @param pathToCSVFile - a String representing a path to a CSV file containing
+	 *                      tweets
+	 * @param tweetColumn   - the number of the column in the CSV file that contains
+	 *                      the tweet
+	 * @param filter        - the (non-null) CsvRowFilter selecting the lines to use
+	 * @param deduplicator  - the TweetDeduplicator dropping duplicate tweets, or
+	 *                      null to keep them all
+	 * @return a list of training data examples
+	 * 
+	 * @throws IllegalArgumentException if pathToCSVFile or filter is null or if
+	 *                                  the file doesn't exist
+	 */
+	public static List<List<String>> csvFileToTrainingData(String pathToCSVFile, int tweetColumn,
+			CsvRowFilter filter, TweetDeduplicator deduplicator) {
 		ArrayList<List<String>> cleanTweets = new ArrayList<List<String>>();
-		List<String> uncleanTweets = csvFileToTweets(pathToCSVFile, tweetColumn);
+		List<String> uncleanTweets = csvFileToTweets(pathToCSVFile, tweetColumn, filter, deduplicator);
 		
 		for (String tweet: uncleanTweets) {
 			List<List<String>> sentence = parseAndCleanTweet(tweet);
@@ -0,0 +1,181 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A TweetPool keeps tweets generated ahead of time by a TwitterBot, so that a
+ * caller who needs a tweet right away gets one without waiting for the walk
+ * through the MarkovChain.
+ *
+ * There is one bounded pool per length bucket, each filled with tweets from
+ * generateTweet(bucket length). take(length) takes a tweet from the bucket of
+ * exactly that length, which takes constant time. Other lengths are generated
+ * on the spot, since a tweet from another bucket would be too short or too
+ * long. A daemon thread refills every pool that falls below its low-water mark
+ * back up to its capacity, and otherwise sleeps until a pool needs it. When a pool is
+ * empty (e.g. right after a burst of requests), take() generates the tweet
+ * itself instead of waiting.
+ *
+ * Tweets in the pool were generated from the chain as it was at the time, so
+ * a bot that keeps training (see TwitterBot.follow) may want to clear() the
+ * pool from time to time.
+ */
+public class TweetPool implements Closeable {
+
+	private final TwitterBot bot;
+	// sorted bucket lengths, and the pool of each bucket
+	private final int[] lengths;
+	private final List<ArrayBlockingQueue<String>> pools;
+	private final int lowWater;
+
+	private final Object refillSignal = new Object();
+	private Thread refiller;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param bot      - the (non-null) TwitterBot generating the tweets
+	 * @param capacity - the number of tweets kept in each pool
+	 * @param lowWater - the size below which a pool is refilled (at most
+	 *                 capacity)
+	 * @param lengths  - the (non-empty) lengths of the buckets, each between 1 and
+	 *                 TwitterBot.MAX_TWEET_LENGTH
+	 * @throws IllegalArgumentException if any argument is invalid
+	 */
+	public TweetPool(TwitterBot bot, int capacity, int lowWater, int... lengths) {
+		if (bot == null || capacity < 1 || lowWater < 1 || lowWater > capacity || lengths == null
+				|| lengths.length == 0) {
+			throw new IllegalArgumentException("invalid TweetPool configuration");
+		}
+		this.lengths = lengths.clone();
+		Arrays.sort(this.lengths);
+		for (int i = 0; i < this.lengths.length; i++) {
+			if (this.lengths[i] < 1 || this.lengths[i] > TwitterBot.MAX_TWEET_LENGTH
+					|| i > 0 && this.lengths[i] == this.lengths[i - 1]) {
+				throw new IllegalArgumentException("invalid bucket length " + this.lengths[i]);
+			}
+		}
+		this.bot = bot;
+		this.lowWater = lowWater;
+		this.pools = new ArrayList<ArrayBlockingQueue<String>>(this.lengths.length);
+		for (int i = 0; i < this.lengths.length; i++) {
+			pools.add(new ArrayBlockingQueue<String>(capacity));
+		}
+	}
+
+	/**
+	 * Starts the thread filling the pools.
+	 *
+	 * @throws IllegalStateException if the TweetPool was already started or
+	 *                               closed
+	 */
+	public synchronized void start() {
+		if (refiller != null || closed) {
+			throw new IllegalStateException("TweetPool already started");
+		}
+		refiller = new Thread(this::refill, "TweetPool refill");
+		refiller.setDaemon(true);
+		refiller.start();
+	}
+
+	/**
+	 * Returns a tweet generated for length, from the pool if length is one of
+	 * the bucket lengths and its pool is not empty.
+	 *
+	 * @param length - the desired (approximate) length of the tweet
+	 * @return a generated tweet, as from TwitterBot.generateTweet()
+	 * @throws IllegalArgumentException if length is less than 1 or greater than
+	 *                                  MAX_TWEET_LENGTH
+	 */
+	public String take(int length) {
+		if (length < 1 || length > TwitterBot.MAX_TWEET_LENGTH) {
+			throw new IllegalArgumentException("length is incorrect");
+		}
+		int bucket = Arrays.binarySearch(lengths, length);
+		if (bucket < 0) {
+			return bot.generateTweet(length);
+		}
+		String tweet = pools.get(bucket).poll();
+		if (pools.get(bucket).size() < lowWater) {
+			synchronized (refillSignal) {
+				refillSignal.notify();
+			}
+		}
+		return tweet != null ? tweet : bot.generateTweet(length);
+	}
+
+	/**
+	 * @param length - a bucket length
+	 * @return the number of tweets currently in that bucket's pool
+	 */
+	public int size(int length) {
+		int i = Arrays.binarySearch(lengths, length);
+		return i >= 0 ? pools.get(i).size() : 0;
+	}
+
+	/**
+	 * Throws away every pooled tweet, e.g. after the bot was trained further, so
+	 * that new tweets are generated from the current chain.
+	 */
+	public void clear() {
+		for (ArrayBlockingQueue<String> pool : pools) {
+			pool.clear();
+		}
+		synchronized (refillSignal) {
+			refillSignal.notify();
+		}
+	}
+
+	private boolean needsRefill() {
+		for (ArrayBlockingQueue<String> pool : pools) {
+			if (pool.size() < lowWater) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void refill() {
+		try {
+			while (!closed) {
+				for (int i = 0; i < pools.size() && !closed; i++) {
+					if (pools.get(i).size() < lowWater) {
+						while (pools.get(i).remainingCapacity() > 0 && !closed) {
+							pools.get(i).offer(bot.generateTweet(lengths[i]));
+						}
+					}
+				}
+				synchronized (refillSignal) {
+					while (!closed && !needsRefill()) {
+						refillSignal.wait();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Stops the refill thread. Pooled tweets can still be taken.
+	 */
+	@Override
+	public void close() {
+		Thread running;
+		synchronized (this) {
+			closed = true;
+			running = refiller;
+		}
+		synchronized (refillSignal) {
+			refillSignal.notifyAll();
+		}
+		if (running != null && running != Thread.currentThread()) {
+			try {
+				running.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -2,10 +2,14 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This is the class where everything you've worked on thus far comes together!
@@ -37,6 +41,15 @@ public class TwitterBot {
 	MarkovChain mc;
 	NumberGenerator ng;
 
+	// how the bot was trained, also applied to the lines it follows
+	TrainingOptions options = new TrainingOptions();
+	// only set for bots trained on a sliding window of recent tweets
+	TimeWindowedChain window;
+
+	// held while training or generating, instead of the bot's monitor, so that
+	// generateTweet(length, maxSteps, timeBudget) can give up waiting for it
+	final ReentrantLock lock = new ReentrantLock();
+
 	/**
 	 * Given a column and a path to the csvFile, initializes the TwitterBot by
 	 * training the MarkovChain with sentences sourced from that CSV file. Uses the
@@ -62,16 +75,229 @@ public class TwitterBot {
 	 *                    MarkovChain
 	 */
 	public TwitterBot(String csvFile, int tweetColumn, NumberGenerator ng) {
+		this(csvFile, tweetColumn, ng, new TrainingOptions());
+	}
+
+	/**
+	 * Creates a TwitterBot around an already trained MarkovChain.
+	 *
+	 * @param mc - the (non-null) trained MarkovChain
+	 * @param ng - A NumberGenerator for the ng field (which should also be mc's)
+	 */
+	TwitterBot(MarkovChain mc, NumberGenerator ng) {
+		if (mc == null || ng == null) {
+			throw new IllegalArgumentException("MarkovChain and NumberGenerator cannot be null");
+		}
+		this.mc = mc;
+		this.ng = ng;
+	}
+
+	/**
+	 * Creates a TwitterBot from a model saved as a ModelSnapshot, e.g. by
+	 * ExternalBigramCounter for a corpus too large to train in memory.
+	 *
+	 * @param modelFile - the path of the snapshot file
+	 * @param ng        - A NumberGenerator for the ng field, also to be passed to
+	 *                  MarkovChain
+	 * @return a TwitterBot using the saved model
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public static TwitterBot load(String modelFile, NumberGenerator ng) throws IOException {
+		return new TwitterBot(ModelSnapshot.load(modelFile, ng), ng);
+	}
+
+	/**
+	 * Creates a TwitterBot from a model saved as a ModelSnapshot, looking up every
+	 * word in the given Vocabulary so that it is shared with the other bots using
+	 * that Vocabulary.
+	 *
+	 * @param modelFile  - the path of the snapshot file
+	 * @param ng         - A NumberGenerator for the ng field, also to be passed to
+	 *                   MarkovChain
+	 * @param vocabulary - the Vocabulary in which words are looked up
+	 * @return a TwitterBot using the saved model
+	 * @throws IOException              if the file cannot be read or is not a
+	 *                                  snapshot
+	 * @throws IllegalArgumentException if vocabulary is null
+	 */
+	public static TwitterBot load(String modelFile, NumberGenerator ng, Vocabulary vocabulary) throws IOException {
+		if (vocabulary == null) {
+			throw new IllegalArgumentException("vocabulary cannot be null");
+		}
+		return new TwitterBot(ModelSnapshot.load(modelFile, ng, vocabulary), ng);
+	}
+
+	/**
+	 * Given a column and a path to the csvFile, initializes the TwitterBot by
+	 * training the MarkovChain on that CSV file as the given TrainingOptions say,
+	 * e.g. on a filtered, deduplicated sample of its tweets, or on only its most
+	 * recent tweets. The options are kept and also applied to the lines the bot
+	 * is trained on with follow().
+	 *
+	 * @param csvFile     - a path to a CSV file containing tweet data
+	 * @param tweetColumn - the column in that CSV where the text of the tweet
+	 *                    itself is stored
+	 * @param ng          - A NumberGenerator for the ng field, also to be passed to
+	 *                    MarkovChain (and used to pick a sample)
+	 * @param options     - the (non-null) TrainingOptions
+	 * @throws IllegalArgumentException if options is null or combines
+	 *                                  checkpointing with sampling or a window,
+	 *                                  or if csvFile is null or the file doesn't
+	 *                                  exist
+	 * @throws UncheckedIOException     if the checkpoint file was written for a
+	 *                                  different CSV file, or for an earlier
+	 *                                  version of this one
+	 */
+	public TwitterBot(String csvFile, int tweetColumn, NumberGenerator ng, TrainingOptions options) {
+		if (options == null) {
+			throw new IllegalArgumentException("options cannot be null");
+		} else if (options.checkpointFile != null && (options.sampleSize >= 0 || options.bucketLength != null)) {
+			throw new IllegalArgumentException("checkpoints cannot be combined with sampling or a window");
+		}
 		mc = new MarkovChain(ng);
 		this.ng = ng;
-		List<List<String>> tweets = TweetParser.csvFileToTrainingData(csvFile, tweetColumn);
+		this.options = options;
+		if (options.bucketLength != null) {
+			window = new TimeWindowedChain(mc, options.bucketLength, options.bucketCount);
+		}
 
-		for(List<String> tweet: tweets) {
-			if (tweet.size() > 0 && tweet != null) {
-				mc.train(tweet.iterator());
+		if (options.checkpointFile != null) {
+			trainWithCheckpoint(csvFile, tweetColumn);
+		} else if (options.sampleSize >= 0) {
+			try (CsvRecordIndex index = options.cachedIndex ? CsvRecordIndex.open(csvFile)
+					: CsvRecordIndex.open(csvFile, options.indexFile)) {
+				for (int n : index.sample(Math.min(options.sampleSize, index.size()), ng)) {
+					for (String line : TweetParser.csvRecordLines(index.record(n))) {
+						trainLine(line, tweetColumn, mc);
+					}
+				}
+			}
+		} else if (window != null) {
+			FileLineIterator lines = new FileLineIterator(csvFile);
+			while (lines.hasNext()) {
+				trainLine(lines.next(), tweetColumn, mc);
 			}
+		} else if (options.vocabulary != null) {
+			mc.trainAll(TweetParser.csvFileToTrainingIds(csvFile, tweetColumn, options.vocabulary, options.filter,
+					options.deduplicator), options.vocabulary);
+		} else {
+			mc.trainAll(TweetParser.csvFileToTrainingData(csvFile, tweetColumn, options.filter,
+					options.deduplicator));
 		}
-		// TODO: Complete this method.
+	}
+
+	/**
+	 * Trains the MarkovChain on the CSV file, saving its progress to the
+	 * checkpoint file of the options as it goes, and resuming from the progress
+	 * already saved there by an earlier (interrupted) run on the same CSV file.
+	 */
+	private void trainWithCheckpoint(String csvFile, int tweetColumn) {
+		try (TrainingCheckpoint checkpoint = new TrainingCheckpoint(options.checkpointFile, csvFile)) {
+			long offset = checkpoint.restore(mc);
+			try (OffsetLineIterator lines = new OffsetLineIterator(csvFile, offset)) {
+				// new lines are trained into a small delta chain that is merged into mc
+				// and handed to the checkpoint writer every checkpointInterval lines
+				MarkovChain delta = new MarkovChain(ng);
+				int linesInDelta = 0;
+				while (lines.hasNext()) {
+					trainLine(lines.next(), tweetColumn, delta);
+					if (++linesInDelta == options.checkpointInterval || !lines.hasNext()) {
+						mc.merge(delta);
+						checkpoint.submit(delta, lines.offset());
+						delta = new MarkovChain(ng);
+						linesInDelta = 0;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Trains one line of a CSV file into the given chain (or into the window,
+	 * for a windowed bot), applying the options to it like TweetParser does to
+	 * every line of a file.
+	 */
+	private void trainLine(String csvLine, int tweetColumn, MarkovChain into) {
+		if (window != null) {
+			window.trainCsvLine(csvLine, options.timestampColumn, line -> lineToTrainingData(line, tweetColumn));
+			return;
+		}
+		for (List<String> sentence : lineToTrainingData(csvLine, tweetColumn)) {
+			into.train(sentence.iterator());
+		}
+	}
+
+	private List<List<String>> lineToTrainingData(String csvLine, int tweetColumn) {
+		String tweet = TweetParser.csvLineToTweet(csvLine, tweetColumn, options.filter, options.deduplicator);
+		if (tweet == null) {
+			return new ArrayList<List<String>>();
+		} else if (options.vocabulary == null) {
+			return TweetParser.parseAndCleanTweet(tweet);
+		}
+		List<List<String>> sentences = new ArrayList<List<String>>();
+		for (int[] ids : TweetParser.parseAndCleanTweetIds(tweet, options.vocabulary)) {
+			List<String> sentence = new ArrayList<String>(ids.length);
+			for (int id : ids) {
+				sentence.add(options.vocabulary.word(id));
+			}
+			sentences.add(sentence);
+		}
+		return sentences;
+	}
+
+	/**
+	 * Keeps training the TwitterBot on the tweets appended to a CSV file, e.g. by
+	 * a scraper, while it runs (see TweetFollower). Every new line is cleaned by
+	 * TweetParser like the rest of the training data (with the same
+	 * TrainingOptions, except sampling and checkpoints), and its sentences are
+	 * added to the MarkovChain as soon as the line is complete, so generated
+	 * tweets stay fresh without rebuilding the bot.
+	 *
+	 * Training and generating tweets share a lock, so tweets can be generated
+	 * from other threads while the file is followed.
+	 *
+	 * @param csvFile     - a path to a CSV file containing tweet data
+	 * @param tweetColumn - the column in that CSV where the text of the tweet
+	 *                    itself is stored
+	 * @param startOffset - the byte offset of the file to start reading from: 0
+	 *                    to train on the whole file, or the file's size when the
+	 *                    bot was already trained on it
+	 * @return the running TweetFollower, which should be closed to stop following
+	 *         the file
+	 * @throws IOException if the file's directory cannot be watched
+	 */
+	public TweetFollower follow(String csvFile, int tweetColumn, long startOffset) throws IOException {
+		TweetFollower follower = new TweetFollower(csvFile, startOffset,
+				line -> followLine(line, tweetColumn));
+		follower.start();
+		return follower;
+	}
+
+	private void followLine(String csvLine, int tweetColumn) {
+		lock.lock();
+		try {
+			trainLine(csvLine, tweetColumn, mc);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts serving tweets from a pool generated ahead of time (see TweetPool),
+	 * for callers that need a tweet without waiting for it to be generated. Each
+	 * pool is refilled once it is half empty.
+	 *
+	 * @param capacity - the number of tweets kept for each length
+	 * @param lengths  - the lengths of tweets to keep
+	 * @return the running TweetPool, which should be closed once no longer needed
+	 * @throws IllegalArgumentException if capacity is less than 1 or a length is
+	 *                                  less than 1 or greater than
+	 *                                  MAX_TWEET_LENGTH
+	 */
+	public TweetPool servePool(int capacity, int... lengths) {
+		TweetPool pool = new TweetPool(this, capacity, Math.max(1, capacity / 2), lengths);
+		pool.start();
+		return pool;
 	}
 
 	/**
@@ -165,33 +391,305 @@ public class TwitterBot {
 	 *                                  MAX_TWEET_LENGTH
 	 */
 	public String generateTweet(int length) {
-		String tweetString = new String();
-		mc.reset();
+		lock.lock();
+		try {
+			String tweetString = new String();
+			mc.reset();
+
+			if (length < 1 || length > MAX_TWEET_LENGTH) {
+				throw new IllegalArgumentException("length is incorrect");
+			} else if (mc.chain.size() > 0) {
+				return extendTweet(tweetString, length); // TODO: Complete this method.
+			}
+		
+			return tweetString;
+		} finally {
+			lock.unlock();
+		}
+	}
 
+	/**
+	 * Generates a tweet like generateTweet(), but gives up once a budget of steps
+	 * (words drawn from the MarkovChain and sentences started) or time runs out,
+	 * or once the thread is interrupted, and returns whatever was generated by
+	 * then. This bounds the time spent on a chain where walks often end early and
+	 * many sentences have to be started. The same words are generated as by
+	 * generateTweet() as long as the budget lasts.
+	 *
+	 * The time budget starts when the method is called, so it includes the time
+	 * spent waiting for another thread to finish using the bot. If the bot is
+	 * still busy when the budget runs out (or the thread is interrupted while
+	 * waiting), an empty tweet is returned without generating anything.
+	 *
+	 * @param length     - The desired (approximate) length of the tweet (in
+	 *                   characters) to be produced
+	 * @param maxSteps   - the maximum number of words to draw and sentences to
+	 *                   start, together
+	 * @param timeBudget - the maximum time to spend, or null for no limit
+	 * @return the tweet, with the status of the generation and the work it took
+	 *         (see GenerationResult.getCompleteTweet() to get a
+	 *         GenerationTimeoutException when the tweet is not complete)
+	 * @throws IllegalArgumentException if length is less than 1 or greater than
+	 *                                  MAX_TWEET_LENGTH, or maxSteps is less than 1
+	 */
+	public GenerationResult generateTweet(int length, long maxSteps, Duration timeBudget) {
+		long deadline = timeBudget == null ? 0 : System.nanoTime() + timeBudget.toNanos();
 		if (length < 1 || length > MAX_TWEET_LENGTH) {
 			throw new IllegalArgumentException("length is incorrect");
-		} else if (mc.chain.size() > 0) {
-			while (tweetString.length() <= length) {
-				if (mc.hasNext()) {
-					String word = mc.next();
-					
-					if (tweetString.length() + word.length() >= length) {
-						tweetString = tweetString + " " +  word + randomPunctuation();
-					} else {
-						tweetString = tweetString + " " + word;
-					}
-					
+		} else if (maxSteps < 1) {
+			throw new IllegalArgumentException("maxSteps must be positive");
+		}
+		try {
+			if (timeBudget == null) {
+				lock.lockInterruptibly();
+			} else if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return new GenerationResult("", GenerationResult.Status.DEADLINE_EXCEEDED, 0, 0);
+			}
+		} catch (InterruptedException e) {
+			// keep the interrupt for the caller, as a walk cut short does
+			Thread.currentThread().interrupt();
+			return new GenerationResult("", GenerationResult.Status.INTERRUPTED, 0, 0);
+		}
+		try {
+			mc.reset();
+			if (mc.chain.size() == 0) {
+				return new GenerationResult("", GenerationResult.Status.COMPLETE, 0, 0);
+			}
+			return extendTweet("", length, maxSteps, timeBudget != null, deadline);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Keeps walking the MarkovChain from its current position, appending words
+	 * (each preceded by a space) and sentence-ending punctuation to tweetString
+	 * as described in generateTweet(), until the tweet is long enough.
+	 *
+	 * @param tweetString - the tweet so far, either empty or starting with a space
+	 * @param length      - the desired (approximate) length of the tweet
+	 * @return the finished tweet, without its leading space
+	 */
+	private String extendTweet(String tweetString, int length) {
+		return extendTweet(tweetString, length, Long.MAX_VALUE, false, 0).getTweet();
+	}
+
+	/**
+	 * Does the same as extendTweet(tweetString, length), but stops early once
+	 * maxSteps words have been drawn or sentences started, the deadline (a
+	 * System.nanoTime() value, if hasDeadline) has passed or the thread is
+	 * interrupted. None of the checks
+	 * draw numbers, so the walk is the same as without a budget. Each call is
+	 * reported as a GenerateTweetEvent to Java Flight Recorder when that event is
+	 * being recorded.
+	 */
+	private GenerationResult extendTweet(String tweetString, int length, long maxSteps, boolean hasDeadline,
+			long deadline) {
+		GenerateTweetEvent event = new GenerateTweetEvent();
+		event.begin();
+		GenerationResult result = walk(tweetString, length, maxSteps, hasDeadline, deadline);
+		if (event.shouldCommit()) {
+			event.desiredLength = length;
+			event.length = result.getTweet().length();
+			event.steps = result.getSteps();
+			event.resets = result.getResets();
+			event.status = result.getStatus().name();
+			event.commit();
+		}
+		return result;
+	}
+
+	private GenerationResult walk(String tweetString, int length, long maxSteps, boolean hasDeadline,
+			long deadline) {
+		long steps = 0;
+		long resets = 0;
+		while (tweetString.length() <= length) {
+			GenerationResult.Status stop = null;
+			if (steps + resets >= maxSteps) {
+				stop = GenerationResult.Status.STEP_BUDGET_EXHAUSTED;
+			} else if (hasDeadline && System.nanoTime() - deadline >= 0) {
+				stop = GenerationResult.Status.DEADLINE_EXCEEDED;
+			} else if (Thread.currentThread().isInterrupted()) {
+				stop = GenerationResult.Status.INTERRUPTED;
+			}
+			if (stop != null) {
+				return new GenerationResult(tweetString.trim(), stop, steps, resets);
+			}
+
+			if (mc.hasNext()) {
+				String word = mc.next();
+				steps++;
+				
+				if (tweetString.length() + word.length() >= length) {
+					tweetString = tweetString + " " +  word + randomPunctuation();
 				} else {
-					String punctuation = randomPunctuation();
-					tweetString = tweetString + punctuation;
-					mc.reset();
+					tweetString = tweetString + " " + word;
 				}
+				
+			} else {
+				String punctuation = randomPunctuation();
+				tweetString = tweetString + punctuation;
+				mc.reset();
+				resets++;
 			}
+		}
 
-			return tweetString.substring(1, tweetString.length()); // TODO: Complete this method.
+		return new GenerationResult(tweetString.substring(1, tweetString.length()),
+				GenerationResult.Status.COMPLETE, steps, resets);
+	}
+
+	/**
+	 * Generates a tweet of a given length that contains the given keyword. The
+	 * first sentence of the tweet is generated through the keyword (see
+	 * MarkovChain.walkThrough), and the rest of the tweet is generated just like
+	 * in generateTweet(). The keyword is matched after cleaning it like any other
+	 * word of the training data, so "Banana" matches "banana".
+	 *
+	 * Unlike calling generateTweet() until a tweet happens to contain the
+	 * keyword, this takes about as long as generating any other tweet.
+	 *
+	 * @param keyword - the word the tweet has to contain
+	 * @param length  - The desired (approximate) length of the tweet (in
+	 *                characters) to be produced
+	 * @return a String representing a generated tweet, or the empty string if
+	 *         there were no sentences available to train the Markov Chain
+	 * @throws IllegalArgumentException if length is less than 1 or greater than
+	 *                                  MAX_TWEET_LENGTH, or if the keyword never
+	 *                                  appears in the training data
+	 */
+	public String generateTweetContaining(String keyword, int length) {
+		lock.lock();
+		try {
+			if (length < 1 || length > MAX_TWEET_LENGTH) {
+				throw new IllegalArgumentException("length is incorrect");
+			} else if (mc.chain.size() == 0) {
+				return "";
+			}
+			String word = keyword == null ? null : TweetParser.cleanWord(keyword);
+			List<String> sentence = mc.walkThrough(word);
+			if (sentence == null) {
+				throw new IllegalArgumentException("keyword does not appear in the training data");
+			}
+
+			// the whole sentence is kept up to the keyword, even past the desired length
+			String tweetString = "";
+			boolean reachedKeyword = false;
+			for (String w : sentence) {
+				reachedKeyword = reachedKeyword || w.equals(word);
+				if (reachedKeyword && tweetString.length() + w.length() >= length) {
+					return (tweetString + " " + w + randomPunctuation()).substring(1);
+				}
+				tweetString = tweetString + " " + w;
+			}
+			tweetString = tweetString + randomPunctuation();
+			mc.reset();
+			return extendTweet(tweetString, length);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Generates a tweet that is as close as possible to a target length without
+	 * ever going over it, in a single pass through the MarkovChain.
+	 *
+	 * generateTweet() adds words until the tweet is long enough, so the last word
+	 * can take it well past the desired length. Instead, this method uses the
+	 * chain's LengthModel to only pick words after which the current sentence can
+	 * still end (with its punctuation) within the target length, and to prefer
+	 * words whose sentences are expected to fit. New sentences are started as
+	 * long as one can still fit.
+	 *
+	 * The tweet is formatted like one from generateTweet(): sentences end with
+	 * randomPunctuation() and are separated by a single space.
+	 *
+	 * @param length - The maximum length of the tweet (in characters)
+	 * @return a String representing a generated tweet, at most length characters
+	 *         long. It is empty if there were no sentences available to train the
+	 *         Markov Chain, or if no sentence is short enough.
+	 * @throws IllegalArgumentException if length is less than 1 or greater than
+	 *                                  MAX_TWEET_LENGTH
+	 */
+	public String generateTweetOfLength(int length) {
+		lock.lock();
+		try {
+			if (length < 1 || length > MAX_TWEET_LENGTH) {
+				throw new IllegalArgumentException("length is incorrect");
+			} else if (mc.chain.size() == 0) {
+				return "";
+			}
+			LengthModel lengths = mc.lengthModel();
+			StringBuilder tweet = new StringBuilder();
+			while (true) {
+				// room for the sentence, leaving one character for its punctuation
+				int available = length - tweet.length() - (tweet.length() == 0 ? 0 : 1) - 1;
+				String word = lengths.pick(mc.startWords, 0, available, ng);
+				if (word == null) {
+					return tweet.toString();
+				}
+				if (tweet.length() > 0) {
+					tweet.append(' ');
+				}
+				tweet.append(word);
+				ProbabilityDistribution<String> successors;
+				while ((successors = mc.get(word)) != null
+						&& (word = lengths.pick(successors, 1, length - tweet.length() - 1, ng)) != null) {
+					tweet.append(' ').append(word);
+				}
+				tweet.append(randomPunctuation());
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Suggests the words most likely to come next after the given text (see
+	 * MarkovChain.suggest), for autocompletion. The text is cleaned like
+	 * training data, and only its last word is used, since the MarkovChain only
+	 * looks one word back. When the text is empty or ends a sentence, the words
+	 * most likely to start a sentence are suggested instead.
+	 *
+	 * Queries are fastest once the bot's MarkovChain has been frozen.
+	 *
+	 * @param prefix - the (non-null) text typed so far
+	 * @param k      - the largest number of suggestions to return
+	 * @return an unmodifiable list of at most k Suggestions, most likely first
+	 * @throws IllegalArgumentException if prefix is null or k is negative
+	 */
+	public List<Suggestion> suggest(String prefix, int k) {
+		lock.lock();
+		try {
+			if (prefix == null) {
+				throw new IllegalArgumentException("prefix cannot be null");
+			}
+			String text = TweetParser.replacePunctuation(TweetParser.removeURLs(prefix)).trim();
+			List<String> words = TweetParser.parseAndCleanSentence(text.substring(text.lastIndexOf('.') + 1));
+			if (text.endsWith(".") || words.isEmpty()) {
+				return mc.suggestStart(k);
+			}
+			return mc.suggest(words.get(words.size() - 1), k);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Creates a ChainScorer for the bot's MarkovChain in its current state (see
+	 * MarkovChain.scorer), holding the bot's lock so that a file being followed
+	 * is not trained while the scorer copies the chain.
+	 *
+	 * @param alpha - the smoothing constant for unseen bigrams (see ChainScorer)
+	 * @return a ChainScorer for the bot's chain
+	 * @throws IllegalArgumentException if alpha is negative
+	 */
+	public ChainScorer scorer(double alpha) {
+		lock.lock();
+		try {
+			return mc.scorer(alpha);
+		} finally {
+			lock.unlock();
 		}
-		
-		return tweetString;
 	}
 
 	/**
@@ -246,8 +744,23 @@ public class TwitterBot {
 	/**
 	 * Prints ten generated tweets to the console so you can see how your bot is
 	 * performing!
+	 *
+	 * Run with "--stats [csvFile [tweetColumn]]" to print a report of the trained
+	 * model's structure and estimated memory use (see ModelStats), before and
+	 * after MarkovChain.freeze(), instead.
 	 */
 	public static void main(String args[]) {
+		if (args.length > 0 && args[0].equals("--stats")) {
+			String csvFile = args.length > 1 ? args[1] : pathToTweets;
+			int column = args.length > 2 ? Integer.parseInt(args[2]) : tweetColumn;
+			MarkovChain model = new TwitterBot(csvFile, column, new XoroshiroNumberGenerator(),
+					new TrainingOptions().vocabulary(new Vocabulary())).mc;
+			System.out.print(new ModelStats(model));
+			model.freeze();
+			System.out.println("\nafter freeze():");
+			System.out.print(new ModelStats(model));
+			return;
+		}
 		TwitterBot t = new TwitterBot(pathToTweets, tweetColumn);
 		List<String> tweets = t.generateTweets(10, 140);
 
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+
+/**
+ * A Vocabulary assigns a small int id to every distinct word it is given, and
+ * keeps a single String instance per word. Ids are assigned in order, starting
+ * at 0, and never change.
+ *
+ * Words can be looked up straight from a range of a char array, so a parser can
+ * turn the words of a text into ids without creating a String for every
+ * occurrence: a String is only created the first time a word is seen. Because
+ * the same instance is returned for every occurrence of a word, a Vocabulary
+ * can also be shared by several MarkovChains so that they do not each keep
+ * their own copy of common words.
+ *
+ * A Vocabulary may be used from several threads at once.
+ */
+public class Vocabulary {
+
+	private String[] words = new String[1024];
+	private int size = 0;
+
+	// open addressing hash table of id + 1 (0 marks an empty slot)
+	private int[] table = new int[2048];
+
+	/**
+	 * @return the number of distinct words in the Vocabulary
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @param id - the id of a word
+	 * @return the word with that id
+	 * @throws IllegalArgumentException if there is no word with that id
+	 */
+	public synchronized String word(int id) {
+		if (id < 0 || id >= size) {
+			throw new IllegalArgumentException("no word with id " + id);
+		}
+		return words[id];
+	}
+
+	/**
+	 * Returns the id of a word, adding the word to the Vocabulary if it is not
+	 * there yet.
+	 *
+	 * @param word - a (non-null) word
+	 * @return the id of the word
+	 * @throws IllegalArgumentException if word is null
+	 */
+	public synchronized int id(String word) {
+		if (word == null) {
+			throw new IllegalArgumentException("word cannot be null");
+		}
+		int slot = find(word, 0, word.length(), word.hashCode());
+		if (table[slot] != 0) {
+			return table[slot] - 1;
+		}
+		return add(word, slot);
+	}
+
+	/**
+	 * Returns the id of the word made of chars[from] to chars[to - 1], adding the
+	 * word to the Vocabulary if it is not there yet. A String is only created
+	 * when the word is added.
+	 *
+	 * @param chars - the characters containing the word
+	 * @param from  - the index of the first character of the word
+	 * @param to    - the index just past the last character of the word
+	 * @return the id of the word
+	 */
+	public synchronized int id(char[] chars, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int slot = find(chars, from, to, hash);
+		if (table[slot] != 0) {
+			return table[slot] - 1;
+		}
+		return add(new String(chars, from, to - from), slot);
+	}
+
+	/**
+	 * @param word - a word
+	 * @return the id of the word, or -1 if it is not in the Vocabulary
+	 */
+	public synchronized int find(String word) {
+		if (word == null) {
+			return -1;
+		}
+		return table[find(word, 0, word.length(), word.hashCode())] - 1;
+	}
+
+	/**
+	 * Returns the slot of the table holding the given word (a String or char[]
+	 * range with the given String hash code), or the empty slot where it belongs.
+	 */
+	private int find(Object chars, int from, int to, int hash) {
+		int mask = table.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (table[slot] != 0 && !matches(words[table[slot] - 1], chars, from, to)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static boolean matches(String word, Object chars, int from, int to) {
+		if (word.length() != to - from) {
+			return false;
+		}
+		if (chars instanceof String) {
+			return word.equals(chars);
+		}
+		char[] cs = (char[]) chars;
+		for (int i = 0; i < word.length(); i++) {
+			if (word.charAt(i) != cs[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int add(String word, int slot) {
+		if (size == words.length) {
+			words = Arrays.copyOf(words, size * 2);
+		}
+		words[size] = word;
+		table[slot] = ++size;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return size - 1;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int hash = words[id].hashCode();
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+	}
+}
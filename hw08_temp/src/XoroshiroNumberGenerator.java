@@ -0,0 +1,100 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Produces random numbers using the xoroshiro128++ generator, seeded through
+ * SplitMix64.
+ *
+ * It is much cheaper per number than RandomNumberGenerator: java.util.Random
+ * updates its seed with an atomic compare-and-set so it can be shared between
+ * threads, and its nextInt(bound) needs a division for every number. This
+ * generator keeps its state in plain fields (so each thread should have its
+ * own) and maps numbers into a range with Lemire's nearly divisionless method,
+ * which only divides in the rare case where a number has to be rejected to keep
+ * the result unbiased.
+ *
+ * The same seed always produces the same numbers.
+ */
+public class XoroshiroNumberGenerator implements NumberGenerator {
+
+	private static final AtomicLong seedUniquifier = new AtomicLong(0x5deece66dL);
+
+	private long s0;
+	private long s1;
+
+	public XoroshiroNumberGenerator() {
+		this(seedUniquifier.addAndGet(0x9e3779b97f4a7c15L) ^ System.nanoTime());
+	}
+
+	public XoroshiroNumberGenerator(long seed) {
+		s0 = splitMix(seed + 0x9e3779b97f4a7c15L);
+		s1 = splitMix(seed + 2 * 0x9e3779b97f4a7c15L);
+	}
+
+	private static long splitMix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return the next 64 random bits
+	 */
+	long nextLong() {
+		long a = s0;
+		long b = s1;
+		long result = Long.rotateLeft(a + b, 17) + a;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+		return result;
+	}
+
+	@Override
+	public int next(int bound) {
+		checkBound(bound);
+		return bounded(nextLong() >>> 32, bound);
+	}
+
+	/**
+	 * Draws two numbers from every 64 random bits.
+	 */
+	@Override
+	public void fill(int bound, int[] out) {
+		checkBound(bound);
+		int i = 0;
+		for (; i + 1 < out.length; i += 2) {
+			long bits = nextLong();
+			out[i] = bounded(bits >>> 32, bound);
+			out[i + 1] = bounded(bits & 0xffffffffL, bound);
+		}
+		if (i < out.length) {
+			out[i] = next(bound);
+		}
+	}
+
+	/**
+	 * Lemire's method: the high 32 bits of random * bound are uniform in [0,
+	 * bound) unless the low 32 bits fall below 2^32 mod bound, in which case the
+	 * number is rejected and drawn again.
+	 *
+	 * @param random - 32 random bits
+	 */
+	private int bounded(long random, int bound) {
+		long product = random * bound;
+		long low = product & 0xffffffffL;
+		if (low < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				product = (nextLong() >>> 32) * bound;
+				low = product & 0xffffffffL;
+			}
+		}
+		return (int) (product >>> 32);
+	}
+
+	private static void checkBound(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+	}
+}
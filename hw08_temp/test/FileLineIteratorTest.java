@@ -1,6 +1,10 @@
 /* Tests for FileLineIterator */
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
 import org.junit.Test;
 
 public class FileLineIteratorTest {
@@ -29,5 +33,64 @@ public class FileLineIteratorTest {
 		FileLineIterator li = new FileLineIterator("files/empty.csv");
 		assertFalse(li.hasNext());
 	}
-}
 
+	@Test
+	public void testCsvRecordIndex() throws IOException {
+		File csv = File.createTempFile("index", ".csv");
+		File idx = File.createTempFile("index", ".idx");
+		try {
+			write(csv, "a,1,one\r\nb,2,\"two\nlines, \"\"quoted\"\"\"\n\nc,3,5\" tall\nd,4,last");
+			try (CsvRecordIndex index = CsvRecordIndex.open(csv.getPath(), idx.getPath())) {
+				assertEquals(4, index.size());
+				assertEquals("a,1,one", index.record(0));
+				assertEquals("b,2,\"two\nlines, \"\"quoted\"\"\"", index.record(1));
+				assertEquals("c,3,5\" tall", index.record(2));
+				assertEquals("d,4,last", index.record(3));
+				assertEquals(csv.length(), index.offset(4));
+			}
+			assertTrue(idx.length() > 0);
+			try (CsvRecordIndex index = CsvRecordIndex.open(csv.getPath(), idx.getPath())) {
+				assertEquals("d,4,last", index.record(3));
+			}
+
+			// a changed file (here, of a different size) gets a new index
+			write(csv, "x,9,only\n");
+			try (CsvRecordIndex index = CsvRecordIndex.open(csv.getPath(), idx.getPath())) {
+				assertEquals(1, index.size());
+				assertEquals("x,9,only", index.record(0));
+			}
+		} finally {
+			csv.delete();
+			idx.delete();
+		}
+	}
+
+	@Test
+	public void testCsvRecordIndexSample() throws IOException {
+		File csv = File.createTempFile("index", ".csv");
+		try {
+			StringBuilder rows = new StringBuilder();
+			for (int i = 0; i < 100; i++) {
+				rows.append("row ").append(i).append('\n');
+			}
+			write(csv, rows.toString());
+			try (CsvRecordIndex index = CsvRecordIndex.open(csv.getPath(), null)) {
+				int[] sample = index.sample(30, new RandomNumberGenerator(3));
+				assertEquals(30, sample.length);
+				for (int i = 1; i < sample.length; i++) {
+					assertTrue(sample[i - 1] < sample[i]);
+				}
+				assertEquals(100, index.sample(100, new RandomNumberGenerator(3)).length);
+				assertEquals("row 42", index.records(42, 43).get(0));
+			}
+		} finally {
+			csv.delete();
+		}
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(contents.getBytes("UTF-8"));
+		}
+	}
+}
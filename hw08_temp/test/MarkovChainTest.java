@@ -1,7 +1,11 @@
 /* Tests for MarkovChain */
 import org.junit.*;
 import static org.junit.Assert.*;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class MarkovChainTest {
 
@@ -177,4 +181,310 @@ public class MarkovChainTest {
             assertEquals(words[i], mc.next());
         }
     }
+    @Test
+    public void testWalkThrough() {
+        Integer[] walkIndices = {0, 0, 0, 0, 2, 0};
+        MarkovChain mc = new MarkovChain(new ListNumberGenerator(walkIndices));
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+
+        assertEquals(Arrays.asList("CIS", "120", "beats", "CIS", "160"), mc.walkThrough("beats"));
+        assertFalse(mc.hasNext());
+        assertEquals(null, mc.walkThrough("121"));
+    }
+
+    @Test
+    public void testBeamSearchMostLikely() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+
+        List<ScoredSentence> top = new BeamSearch(mc, 10, 10).mostLikely(3);
+        assertEquals(3, top.size());
+        assertEquals("CIS 120 rocks", top.get(0).toString());
+        assertEquals(0.5, top.get(0).getProbability(), 1e-9);
+        assertEquals("CIS 160", top.get(1).toString());
+        assertEquals(0.25, top.get(1).getProbability(), 1e-9);
+        assertEquals("CIS 120 beats CIS 120 rocks", top.get(2).toString());
+        assertEquals(0.125, top.get(2).getProbability(), 1e-9);
+
+        top = new BeamSearch(mc, 1, 10).mostLikely("beats", 1);
+        assertEquals("beats CIS 120 rocks", top.get(0).toString());
+    }
+
+    @Test
+    public void testScorer() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("a b".split(" ")).iterator());
+        mc.train(Arrays.stream("a c".split(" ")).iterator());
+
+        TextScore score = mc.scorer(0).score("A b!");
+        assertEquals(Math.log(0.5), score.getLogLikelihood(), 1e-9);
+        assertEquals(3, score.getPredictions());
+        assertEquals(Math.pow(2, 1.0 / 3), score.getPerplexity(), 1e-9);
+        assertEquals(Double.NEGATIVE_INFINITY, mc.scorer(0).score("b a").getLogLikelihood(), 0);
+
+        // with Laplace smoothing there are 4 outcomes: a, b, c and the end
+        ChainScorer laplace = mc.scorer(1);
+        assertEquals(Math.log(1.0 / 15), laplace.score("a b").getLogLikelihood(), 1e-9);
+        // "d" was never seen: 1/6 after "a", and the end has probability 1/4 after it
+        assertEquals(Math.log(1.0 / 15) + Math.log(0.5 / 6 / 4),
+                laplace.score("a b. a d").getLogLikelihood(), 1e-9);
+        List<TextScore> scores = laplace.scoreAll(Arrays.asList("a b", "@"));
+        assertEquals(3, scores.get(0).getPredictions());
+        assertEquals(0, scores.get(1).getPredictions());
+
+        // a scorer is a snapshot of the chain
+        mc.train(Arrays.stream("a d".split(" ")).iterator());
+        assertEquals(Math.log(1.0 / 15), laplace.score("a b").getLogLikelihood(), 1e-9);
+        assertEquals(Double.NEGATIVE_INFINITY, mc.scorer(0).score("d").getLogLikelihood(), 0);
+        assertEquals(Math.log(1.0 / 3), mc.scorer(0).score("a d").getLogLikelihood(), 1e-9);
+    }
+
+    @Test
+    public void testXoroshiroNumberGenerator() {
+        XoroshiroNumberGenerator a = new XoroshiroNumberGenerator(120);
+        XoroshiroNumberGenerator b = new XoroshiroNumberGenerator(120);
+        int[] counts = new int[7];
+        for (int i = 0; i < 70000; i++) {
+            int n = a.next(7);
+            assertEquals(n, b.next(7));
+            counts[n]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 9000 && count < 11000);
+        }
+
+        // fill draws the same kind of numbers in bulk, and is deterministic too
+        int[] filled = new int[1001];
+        int[] again = new int[1001];
+        new XoroshiroNumberGenerator(7).fill(3, filled);
+        new XoroshiroNumberGenerator(7).fill(3, again);
+        assertArrayEquals(filled, again);
+        for (int n : filled) {
+            assertTrue(n >= 0 && n < 3);
+        }
+        assertEquals(0, a.next(1));
+    }
+
+    @Test
+    public void testListNumberGeneratorFill() {
+        int[] out = new int[4];
+        new ListNumberGenerator(new Integer[] { 3, 1, 0 }).fill(2, out);
+        assertArrayEquals(new int[] { 1, 0, 1, 0 }, out);
+    }
+
+    @Test
+    public void testModelStats() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+
+        ModelStats stats = new ModelStats(mc);
+        assertEquals(5, stats.getVocabularySize());
+        assertEquals(5, stats.getStates());
+        assertEquals(7, stats.getEdges());
+        assertEquals(2, stats.getEndEdges());
+        assertEquals(8, stats.getTransitions());
+        assertEquals(1, stats.getStartWords());
+        assertEquals(2, stats.getStartTransitions());
+        assertEquals(2, stats.getMaxFanOut());
+        assertEquals(3, stats.getFanOutCount(0));
+        assertEquals(2, stats.getFanOutCount(1));
+        assertTrue(stats.getDistributionBytes() > 0);
+        assertEquals(stats.getKeyBytes() + stats.getChainBytes() + stats.getDistributionBytes()
+                + stats.getStartWordBytes(), stats.getTotalBytes());
+    }
+
+    @Test
+    public void testFreezeSharesIdenticalDistributions() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("a x".split(" ")).iterator());
+        mc.train(Arrays.stream("b x".split(" ")).iterator());
+        mc.train(Arrays.stream("c y".split(" ")).iterator());
+
+        // a and b share {x: 1}; c has {y: 1}, x has {null: 2} and y has {null: 1}
+        assertEquals(4, mc.freeze());
+        assertSame(mc.get("a"), mc.get("b"));
+        assertNotSame(mc.get("x"), mc.get("y"));
+        assertEquals(4, new ModelStats(mc).getDistributions());
+
+        // training a frozen chain only changes the word being trained
+        mc.train(Arrays.stream("a z".split(" ")).iterator());
+        assertEquals(1, mc.get("a").count("z"));
+        assertEquals(0, mc.get("b").count("z"));
+        assertEquals(1, mc.get("b").count("x"));
+        assertEquals(3, mc.get("a").getTotal() + mc.get("b").getTotal());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFrozenDistributionRejectsRecords() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<String>();
+        pd.record("a");
+        pd.freeze();
+        pd.record("a");
+    }
+
+    @Test
+    public void testFrozenSingleSuccessorDrawsNothing() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<String>();
+        pd.record("only", 5);
+        pd.freeze();
+        NumberGenerator failing = bound -> {
+            throw new AssertionError("no number should be drawn");
+        };
+        assertEquals("only", pd.pick(failing));
+        assertEquals("only", pd.pick(4));
+        assertEquals(5, pd.count("only"));
+        assertEquals(0, pd.count(null));
+    }
+
+    @Test
+    public void testSuggestTopSuccessors() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.asList("a", "banana").iterator());
+        mc.train(Arrays.asList("a", "banana").iterator());
+        mc.train(Arrays.asList("a", "table").iterator());
+        mc.train(Arrays.asList("a", "cherry", "pie").iterator());
+        mc.train(Arrays.asList("a").iterator());
+        List<Suggestion> before = mc.suggest("a", 10);
+        assertEquals(3, before.size());
+        assertEquals("banana", before.get(0).getWord());
+        assertEquals(2, before.get(0).getCount());
+        // the end of the sentence counts towards the total of 5
+        assertEquals(0.4, before.get(0).getProbability(), 1e-9);
+        assertEquals("cherry", before.get(1).getWord());
+        assertEquals("table", before.get(2).getWord());
+        assertTrue(mc.suggest("banana", 3).isEmpty());
+        assertTrue(mc.suggest("zebra", 3).isEmpty());
+
+        mc.freeze();
+        // the frozen successors are kept by decreasing count
+        assertEquals("banana", mc.get("a").elementAt(0));
+        List<Suggestion> after = mc.suggest("a", 2);
+        assertEquals(before.subList(0, 2), after);
+        assertEquals(before, mc.suggest("a", 10));
+        assertEquals(0, mc.suggest("a", 0).size());
+        assertEquals("a", mc.suggestStart(1).get(0).getWord());
+
+        // training after freeze() is seen by the next query
+        mc.train(Arrays.asList("a", "table").iterator());
+        mc.train(Arrays.asList("a", "table").iterator());
+        assertEquals("table", mc.suggest("a", 1).get(0).getWord());
+    }
+
+    @Test
+    public void testFrozenPickMatchesUnfrozen() {
+        for (int degree : new int[] { 2, 5, ProbabilityDistribution.MAX_SCANNED_DEGREE + 1, 40 }) {
+            ProbabilityDistribution<String> pd = new ProbabilityDistribution<String>();
+            for (int i = 0; i < degree; i++) {
+                pd.record("w" + i, 1 + i * 7 % 5);
+            }
+            pd.record(null, 3);
+            ProbabilityDistribution<String> frozen = new ProbabilityDistribution<String>(pd);
+            frozen.freeze();
+            for (int index = 0; index < pd.getTotal(); index++) {
+                assertEquals(pd.pick(index), frozen.pick(index));
+            }
+            // the records are still there once the table is dropped
+            assertEquals(pd.getRecords(), frozen.getRecords());
+            assertEquals(pd.contentHash(), frozen.contentHash());
+            assertEquals(3, frozen.count(null));
+            assertEquals(0, frozen.count("x"));
+            assertTrue(frozen.keySet().contains("w1"));
+            assertTrue(new ProbabilityDistribution<String>(frozen).sameContent(pd));
+        }
+    }
+
+    @Test
+    public void testFrozenPickProbabilitiesAreExact() {
+        for (int degree : new int[] { 3, 20 }) {
+            ProbabilityDistribution<String> pd = new ProbabilityDistribution<String>();
+            for (int i = 0; i < degree; i++) {
+                pd.record("w" + i, 1 + i % 4);
+            }
+            pd.freeze();
+            // draw every possible number (or pair of numbers) exactly once
+            int columns = degree > ProbabilityDistribution.MAX_SCANNED_DEGREE ? degree : 1;
+            int total = pd.getTotal();
+            int[] step = { 0 };
+            NumberGenerator every = bound -> {
+                int n = step[0]++;
+                return columns == 1 ? n : n % 2 == 0 ? n / 2 / total : n / 2 % total;
+            };
+            Map<String, Integer> picked = new HashMap<String, Integer>();
+            for (int i = 0; i < columns * total; i++) {
+                picked.merge(pd.pick(every), 1, Integer::sum);
+            }
+            for (int i = 0; i < degree; i++) {
+                assertEquals(columns * pd.count("w" + i), (int) picked.get("w" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testSubtractUndoesMerge() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("a b".split(" ")).iterator());
+        MarkovChain other = new MarkovChain();
+        other.train(Arrays.stream("a c".split(" ")).iterator());
+        other.train(Arrays.stream("c".split(" ")).iterator());
+        mc.merge(other);
+        mc.subtract(other);
+        assertEquals(1, mc.startWords.getTotal());
+        assertEquals(1, mc.get("a").getTotal());
+        assertEquals(1, mc.get("a").count("b"));
+        assertNull(mc.get("c"));
+    }
+
+    @Test
+    public void testTimeWindowedChainEvictsOldBuckets() {
+        TimeWindowedChain window = new TimeWindowedChain(new MarkovChain(), Duration.ofHours(1), 2);
+        MarkovChain mc = window.getChain();
+        assertTrue(window.trainCsvLine("me,2019-10-09 10:15:00,Apple pie.", 1, 2));
+        assertTrue(window.trainCsvLine("me,2019-10-09 11:59:59,Banana split.", 1, 2));
+        assertNotNull(mc.get("apple"));
+        // 12:00 starts a third bucket, so the 10:00 one is forgotten
+        assertTrue(window.trainCsvLine("me,2019-10-09 12:00:00,Cherry tart.", 1, 2));
+        assertNull(mc.get("apple"));
+        assertEquals(2, mc.startWords.getTotal());
+        // too old for the window, or no timestamp at all
+        assertFalse(window.trainCsvLine("me,2019-10-09 10:30:00,Apple crumble.", 1, 2));
+        assertFalse(window.trainCsvLine("continued on another line", 1, 2));
+        assertTrue(window.trainCsvLine("me,2019-10-09 11:00:00,Banana bread.", 1, 2));
+        assertEquals(2, mc.get("banana").getTotal());
+        window.advanceTo(TimeWindowedChain.parseTimestamp("2019-10-10 00:00:00"));
+        assertEquals(0, mc.startWords.getTotal());
+        assertTrue(mc.chain.isEmpty());
+    }
+
+    @Test
+    public void testProbabilityDistributionTableMatchesMap() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<String>();
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        NumberGenerator r = new RandomNumberGenerator(5);
+        for (int i = 0; i < 5000; i++) {
+            String word = r.next(3) == 0 ? null : "w" + r.next(200);
+            int current = pd.count(word);
+            if (current > 0 && r.next(3) == 0) {
+                int count = 1 + r.next(current);
+                pd.remove(word, count);
+                if (count == current) {
+                    expected.remove(word);
+                } else {
+                    expected.put(word, current - count);
+                }
+            } else {
+                pd.record(word);
+                expected.merge(word, 1, Integer::sum);
+            }
+            assertEquals((int) expected.getOrDefault(word, 0), pd.count(word));
+        }
+        assertEquals(expected, pd.getRecords());
+        assertEquals(expected.keySet(), pd.keySet());
+        assertEquals(expected.hashCode(), pd.contentHash());
+        assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), pd.getTotal());
+        assertTrue(pd.sameContent(new ProbabilityDistribution<String>(pd)));
+    }
 }
@@ -1,11 +1,16 @@
 /* Tests for TweetParser */
 import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -128,4 +133,122 @@ public class TweetParserTest {
 			assertEquals(tweets.get(6), listOfArray("there i will be happy".split(" ")));
 		}
 		
+		// turns sentences of ids back into sentences of words
+		private static List<List<String>> words(List<int[]> sentences, Vocabulary vocabulary) {
+			List<List<String>> result = new LinkedList<List<String>>();
+			for (int[] sentence : sentences) {
+				List<String> words = new LinkedList<String>();
+				for (int id : sentence) {
+					words.add(vocabulary.word(id));
+				}
+				result.add(words);
+			}
+			return result;
+		}
+
+		@Test
+		public void testParseAndCleanTweetIdsMatchesParseAndCleanTweet() {
+			Vocabulary vocabulary = new Vocabulary();
+			String[] tweets = { "abc http://www.cis.upenn.edu efg", "A banana? A banana!", "", "...",
+					"  Don't STOP; me_now  ", "tab\tinside @user #tag caf\u00e9 x\u00c9", "a\nb c\n\nd e" };
+			for (String tweet : tweets) {
+				assertEquals(TweetParser.parseAndCleanTweet(tweet),
+						words(TweetParser.parseAndCleanTweetIds(tweet, vocabulary), vocabulary));
+			}
+			assertEquals(vocabulary.find("banana"), TweetParser.parseAndCleanTweetIds("BANANA", vocabulary).get(0)[0]);
+		}
+
+		@Test
+		public void testCsvFileToTrainingIds() {
+			Vocabulary vocabulary = new Vocabulary();
+			String file = "files/big_ben_clock_tweets.csv";
+			assertEquals(TweetParser.csvFileToTrainingData(file, 2),
+					words(TweetParser.csvFileToTrainingIds(file, 2, vocabulary), vocabulary));
+		}
+
+		@Test
+		public void testSyntheticCorpusIsDeterministicAndParses() throws IOException {
+			StringWriter first = new StringWriter();
+			StringWriter second = new StringWriter();
+			new SyntheticCorpusGenerator(7, 1000, 1.0).write(first, 300);
+			new SyntheticCorpusGenerator(7, 1000, 1.0).write(second, 300);
+			assertEquals(first.toString(), second.toString());
+
+			File file = File.createTempFile("synthetic", ".csv");
+			try {
+				new SyntheticCorpusGenerator(7, 1000, 1.0).write(file.getPath(), 300);
+				Vocabulary vocabulary = new Vocabulary();
+				assertTrue(TweetParser.csvFileToTrainingIds(file.getPath(), 2, vocabulary).size() > 300);
+				assertTrue(vocabulary.find("the") >= 0);
+			} finally {
+				file.delete();
+			}
+		}
+
+		@Test
+		public void testCsvRowFilter() {
+			CsvRowFilter filter = CsvRowFilter.ALL.whereEquals(0, "me").whereBetween(1, "2019-07", "2019-08");
+			assertTrue(filter.accepts("me,2019-07-29 17:00:02,text"));
+			assertFalse(filter.accepts("you,2019-07-29 17:00:02,text"));
+			assertFalse(filter.accepts("me,2019-08-01 00:00:00,text"));
+			assertFalse(filter.accepts("me"));
+			assertTrue(CsvRowFilter.ALL.accepts("anything"));
+		}
+
+		@Test
+		public void testCsvFileToTrainingDataWithFilter() {
+			assertEquals(Arrays.asList(Arrays.asList("with", "a", "moo", "moo", "here", "and", "a", "moo", "moo",
+					"there")), TweetParser.csvFileToTrainingData("files/twitterbot_test.csv", 2,
+							CsvRowFilter.ALL.whereEquals(0, "with")));
+			String file = "files/big_ben_clock_tweets.csv";
+			assertEquals(659, TweetParser.csvFileToTweets(file, 2,
+					CsvRowFilter.ALL.whereBetween(1, "2019-07-01", "2019-08-01")).size());
+		}
+
+		@Test
+		public void testTweetDeduplicator() {
+			TweetDeduplicator exact = TweetDeduplicator.exact();
+			assertTrue(exact.add("Hello  world"));
+			assertFalse(exact.add(" hello world "));
+			assertFalse(exact.add("RT @someone: HELLO\tWORLD"));
+			assertTrue(exact.add("hello world!"));
+			assertTrue(exact.add("RT @someone hello world"));
+			assertEquals(5, exact.seen());
+			assertEquals(2, exact.skipped());
+
+			TweetDeduplicator bloom = TweetDeduplicator.bloom(1000, 0.01);
+			int falsePositives = 0;
+			for (int i = 0; i < 1000; i++) {
+				if (!bloom.add("tweet number " + i)) {
+					falsePositives++;
+				}
+			}
+			assertTrue(falsePositives < 50);
+			for (int i = 0; i < 1000; i++) {
+				assertFalse(bloom.add("Tweet  number " + i));
+			}
+		}
+
+		@Test
+		public void testCsvFileToTrainingDataWithDeduplicator() {
+			String file = "files/big_ben_clock_tweets.csv";
+			Set<String> distinct = new HashSet<String>();
+			for (String tweet : TweetParser.csvFileToTweets(file, 2)) {
+				distinct.add(tweet.toLowerCase().trim().replaceAll("\\s+", " "));
+			}
+			TweetDeduplicator deduplicator = TweetDeduplicator.exact();
+			assertEquals(distinct.size(),
+					TweetParser.csvFileToTweets(file, 2, CsvRowFilter.ALL, deduplicator).size());
+			assertEquals(distinct.size(), deduplicator.seen() - deduplicator.skipped());
+			assertTrue(deduplicator.skipped() > 0);
+			// everything is a duplicate the second time around
+			assertTrue(TweetParser.csvFileToTrainingData(file, 2, CsvRowFilter.ALL, deduplicator).isEmpty());
+		}
+
+		@Test
+		public void testCsvFileToTweetsSkipsLinesWithoutTweet() {
+			// continuation lines of multi-line tweets have no third column
+			assertFalse(TweetParser.csvFileToTweets("files/captain_markov_tweets.csv", 2).isEmpty());
+		}
+
 }
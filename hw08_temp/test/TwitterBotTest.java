@@ -1,9 +1,25 @@
 /* Tests for TwitterBot class */
 import org.junit.*;
 import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 public class TwitterBotTest {
 
@@ -68,4 +84,531 @@ public class TwitterBotTest {
 		assertEquals(t.generateTweet(10), "hello world;");
 	}
 	
+	@Test
+	public void testCheckpointedTrainingMatchesAndResumes() throws IOException {
+		String data = "files/big_ben_clock_tweets.csv";
+		File checkpoint = File.createTempFile("twitterbot", ".ckpt");
+		checkpoint.delete();
+		try {
+			TwitterBot expected = new TwitterBot(data, 2);
+			TwitterBot first = new TwitterBot(data, 2, new RandomNumberGenerator(),
+					new TrainingOptions().checkpoint(checkpoint.getPath(), 7));
+			assertEquals(expected.mc.chain.keySet(), first.mc.chain.keySet());
+			for (String word : expected.mc.chain.keySet()) {
+				assertEquals(expected.mc.get(word).getRecords(), first.mc.get(word).getRecords());
+			}
+			assertEquals(expected.mc.startWords.getRecords(), first.mc.startWords.getRecords());
+
+			// a half-written block at the end of the checkpoint is ignored on restore
+			try (FileOutputStream out = new FileOutputStream(checkpoint, true)) {
+				out.write(new byte[] { 0, 0, 1, 0, 42 });
+			}
+			TwitterBot resumed = new TwitterBot(data, 2, new RandomNumberGenerator(),
+					new TrainingOptions().checkpoint(checkpoint.getPath(), 7));
+			for (String word : expected.mc.chain.keySet()) {
+				assertEquals(expected.mc.get(word).getRecords(), resumed.mc.get(word).getRecords());
+			}
+			assertEquals(expected.mc.startWords.getRecords(), resumed.mc.startWords.getRecords());
+
+			// progress is never resumed on a different input file
+			try {
+				new TwitterBot("files/dog_feelings_tweets.csv", 2, new RandomNumberGenerator(),
+						new TrainingOptions().checkpoint(checkpoint.getPath(), 7));
+				fail("expected an UncheckedIOException");
+			} catch (UncheckedIOException e) {
+				// expected
+			}
+		} finally {
+			checkpoint.delete();
+		}
+	}
+
+	@Test
+	public void testGenerateTweetContaining() {
+		ListNumberGenerator lng = new ListNumberGenerator(Collections.nCopies(100, 0));
+		TwitterBot t = new TwitterBot(randomData, 2, lng);
+		assertEquals("startthree middlethree;", t.generateTweetContaining("MiddleThree", 20));
+		assertEquals("startthree middlethree endthree; startfour middlefour endfour;",
+				t.generateTweetContaining("middlethree", 60));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGenerateTweetContainingUnknownWord() {
+		TwitterBot t = new TwitterBot(randomData, 2);
+		t.generateTweetContaining("banana", 60);
+	}
+
+	@Test
+	public void testGenerateTweetOfLengthNeverOvershoots() {
+		TwitterBot t = new TwitterBot("files/twitterbot_test.csv", 2, new RandomNumberGenerator(42));
+		for (int length = 1; length <= TwitterBot.MAX_TWEET_LENGTH; length++) {
+			String tweet = t.generateTweetOfLength(length);
+			assertTrue(tweet.length() <= length);
+			// the shortest sentence ("everywhere a moo moo.") always fits again
+			assertTrue(length < 21 || tweet.length() > length - 22);
+		}
+	}
+
+	@Test
+	public void testGenerateTweetOfLengthExact() {
+		ListNumberGenerator lng = new ListNumberGenerator(Collections.nCopies(100, 0));
+		TwitterBot t = new TwitterBot(randomData, 2, lng);
+		// one sentence fits in 30 characters but two do not
+		assertTrue(t.generateTweetOfLength(30).matches("start(\\w+) middle\\1 end\\1;"));
+		assertEquals("", t.generateTweetOfLength(10));
+	}
+
+	@Test
+	public void testTimeWindowKeepsRecentTweets() {
+		String data = "files/big_ben_clock_tweets.csv";
+		TwitterBot all = new TwitterBot(data, 2);
+		TwitterBot recent = new TwitterBot(data, 2, new RandomNumberGenerator(),
+				new TrainingOptions().window(1, Duration.ofDays(30), 3));
+		int sentences = recent.mc.startWords.getTotal();
+		assertTrue(sentences > 0);
+		assertTrue(sentences < all.mc.startWords.getTotal());
+		// the newest tweet is always in the window
+		assertTrue(recent.mc.chain.containsKey("inconvenience"));
+	}
+
+	@Test
+	public void testSampledTraining() throws IOException {
+		File csv = File.createTempFile("twitterbot", ".csv");
+		try {
+			Files.copy(Paths.get("files/twitterbot_test.csv"), csv.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			TwitterBot all = new TwitterBot(csv.getPath(), 2, new RandomNumberGenerator(),
+					new TrainingOptions().sample(1000));
+			assertEquals(new TwitterBot(csv.getPath(), 2).mc.startWords.getRecords(),
+					all.mc.startWords.getRecords());
+			TwitterBot some = new TwitterBot(csv.getPath(), 2, new RandomNumberGenerator(),
+					new TrainingOptions().sample(3));
+			assertEquals(3, some.mc.startWords.getTotal());
+		} finally {
+			csv.delete();
+			new File(CsvRecordIndex.cachePath(csv.getPath())).delete();
+			assertFalse(new File(csv.getPath() + ".idx").exists());
+		}
+	}
+
+	@Test
+	public void testSampledTrainingOnMultiLineRecords() throws IOException {
+		File csv = File.createTempFile("twitterbot", ".csv");
+		try {
+			try (FileOutputStream out = new FileOutputStream(csv)) {
+				out.write(("a,1,\"first line, with a comma\nsecond line, more, words here. still the same tweet\"\r\n"
+						+ "b,2,one line only\n\n"
+						+ "c,3,\"\"\"quoted\"\" start\rand a carriage return\"\n").getBytes("UTF-8"));
+			}
+			assertSameModel(new TwitterBot(csv.getPath(), 2, new RandomNumberGenerator()),
+					new TwitterBot(csv.getPath(), 2, new RandomNumberGenerator(),
+						new TrainingOptions().sample(Integer.MAX_VALUE)));
+			new File(CsvRecordIndex.cachePath(csv.getPath())).delete();
+
+			Files.copy(Paths.get("files/dog_feelings_tweets.csv"), csv.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			assertSameModel(new TwitterBot(csv.getPath(), 2, new RandomNumberGenerator()),
+					new TwitterBot(csv.getPath(), 2, new RandomNumberGenerator(),
+						new TrainingOptions().sample(Integer.MAX_VALUE)));
+		} finally {
+			csv.delete();
+			new File(CsvRecordIndex.cachePath(csv.getPath())).delete();
+		}
+	}
+
+	@Test
+	public void testTrainingOptionsCompose() throws IOException {
+		String data = "files/big_ben_clock_tweets.csv";
+		CsvRowFilter filter = CsvRowFilter.ALL.whereBetween(1, "2019-07", "2019-08");
+		MarkovChain expected = new MarkovChain();
+		expected.trainAll(TweetParser.csvFileToTrainingData(data, 2, filter, TweetDeduplicator.exact()));
+
+		Vocabulary vocabulary = new Vocabulary();
+		TwitterBot t = new TwitterBot(data, 2, new RandomNumberGenerator(), new TrainingOptions().filter(filter)
+				.deduplicate(TweetDeduplicator.exact()).vocabulary(vocabulary));
+		assertEquals(expected.startWords.getRecords(), t.mc.startWords.getRecords());
+		assertEquals(expected.chain.keySet(), t.mc.chain.keySet());
+		for (String word : t.mc.chain.keySet()) {
+			assertSame(vocabulary.word(vocabulary.find(word)), word);
+		}
+
+		// a filtered sample of every record trains the same model as the filtered
+		// file, and so does a window wide enough for every tweet
+		File index = File.createTempFile("twitterbot", ".idx");
+		try {
+			assertSameModel(t, new TwitterBot(data, 2, new RandomNumberGenerator(), new TrainingOptions()
+					.filter(filter).deduplicate(TweetDeduplicator.exact()).sample(Integer.MAX_VALUE, index.getPath())));
+		} finally {
+			index.delete();
+		}
+		assertSameModel(t, new TwitterBot(data, 2, new RandomNumberGenerator(), new TrainingOptions()
+				.filter(filter).deduplicate(TweetDeduplicator.exact()).window(1, Duration.ofDays(365), 100)));
+
+		try {
+			new TwitterBot(data, 2, new RandomNumberGenerator(),
+					new TrainingOptions().sample(10).checkpoint(index.getPath(), 7));
+			fail("expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void assertSameModel(TwitterBot expected, TwitterBot actual) {
+		assertEquals(expected.mc.startWords.getRecords(), actual.mc.startWords.getRecords());
+		assertEquals(expected.mc.chain.keySet(), actual.mc.chain.keySet());
+		for (String word : expected.mc.chain.keySet()) {
+			assertEquals(expected.mc.get(word).getRecords(), actual.mc.get(word).getRecords());
+		}
+	}
+
+	@Test
+	public void testTweetPool() throws InterruptedException {
+		TwitterBot t = new TwitterBot(randomData, 2);
+		try (TweetPool pool = t.servePool(8, 140, 30)) {
+			for (int i = 0; i < 50 && (pool.size(30) < 8 || pool.size(140) < 8); i++) {
+				Thread.sleep(100);
+			}
+			assertEquals(8, pool.size(30));
+			assertEquals(8, pool.size(140));
+			assertTrue(pool.take(140).length() >= 140);
+			// lengths between, below or above the buckets are generated directly,
+			// never served from a shorter or longer bucket
+			assertTrue(pool.take(139).length() >= 139);
+			assertTrue(pool.take(100).length() >= 100);
+			assertTrue(pool.take(280).length() >= 280);
+			assertFalse(pool.take(10).isEmpty());
+			assertEquals(8, pool.size(30));
+			for (int i = 0; i < 20; i++) {
+				assertFalse(pool.take(30).isEmpty());
+			}
+		}
+	}
+
+	@Test
+	public void testGenerateTweetWithBudget() {
+		ListNumberGenerator lng = new ListNumberGenerator(Collections.nCopies(100, 0));
+		TwitterBot t = new TwitterBot(randomData, 2, lng);
+		GenerationResult result = t.generateTweet(60, 1000, Duration.ofSeconds(10));
+		assertTrue(result.isComplete());
+		t = new TwitterBot(randomData, 2, new ListNumberGenerator(Collections.nCopies(100, 0)));
+		assertEquals(t.generateTweet(60), result.getCompleteTweet());
+		// "startfour middlefour endfour; startfour middlefour endfour; startfour;"
+		assertEquals(7, result.getSteps());
+		assertEquals(2, result.getResets());
+
+		result = t.generateTweet(60, 2, null);
+		assertEquals(GenerationResult.Status.STEP_BUDGET_EXHAUSTED, result.getStatus());
+		assertEquals(2, result.getSteps());
+		assertEquals(2, result.getTweet().split(" ").length);
+		try {
+			result.getCompleteTweet();
+			fail("expected a GenerationTimeoutException");
+		} catch (GenerationTimeoutException e) {
+			assertSame(result, e.getResult());
+		}
+
+		assertEquals(GenerationResult.Status.DEADLINE_EXCEEDED,
+				t.generateTweet(60, 1000, Duration.ZERO).getStatus());
+		Thread.currentThread().interrupt();
+		try {
+			assertEquals(GenerationResult.Status.INTERRUPTED, t.generateTweet(60, 1000, null).getStatus());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	public void testGenerateTweetWithBudgetWaitsForBusyBot() throws InterruptedException {
+		CountDownLatch busy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TwitterBot t = new TwitterBot(randomData, 2, bound -> {
+			busy.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 0;
+		});
+		Thread holder = new Thread(() -> t.generateTweet(60));
+		holder.start();
+		try {
+			busy.await();
+			// the budget also covers the wait for the other generation to finish
+			GenerationResult result = t.generateTweet(60, 1000, Duration.ofMillis(50));
+			assertEquals(GenerationResult.Status.DEADLINE_EXCEEDED, result.getStatus());
+			assertEquals("", result.getTweet());
+			assertEquals(0, result.getSteps());
+
+			Thread.currentThread().interrupt();
+			try {
+				assertEquals(GenerationResult.Status.INTERRUPTED, t.generateTweet(60, 1000, null).getStatus());
+				assertTrue(Thread.currentThread().isInterrupted());
+			} finally {
+				Thread.interrupted();
+			}
+		} finally {
+			release.countDown();
+			holder.join();
+		}
+	}
+
+	@Test
+	public void testExternalBigramCounterMatchesInMemoryTraining() throws IOException {
+		String data = "files/big_ben_clock_tweets.csv";
+		File directory = Files.createTempDirectory("spill").toFile();
+		File model = new File(directory, "big_ben.model");
+		try {
+			// a tiny buffer makes many runs, and more than one merge pass
+			try (ExternalBigramCounter counter = new ExternalBigramCounter(directory, 7)) {
+				counter.trainFile(data, 2);
+				counter.writeModel(model.getPath());
+			}
+			assertEquals(1, directory.list().length);
+			TwitterBot expected = new TwitterBot(data, 2);
+			TwitterBot loaded = TwitterBot.load(model.getPath(), new RandomNumberGenerator());
+			assertEquals(expected.mc.startWords.getRecords(), loaded.mc.startWords.getRecords());
+			assertEquals(expected.mc.chain.keySet(), loaded.mc.chain.keySet());
+			for (String word : expected.mc.chain.keySet()) {
+				assertEquals(expected.mc.get(word).getRecords(), loaded.mc.get(word).getRecords());
+			}
+
+			ModelSnapshot.save(expected.mc, model.getPath());
+			loaded = TwitterBot.load(model.getPath(), new RandomNumberGenerator());
+			assertEquals(expected.mc.get("bong").getRecords(), loaded.mc.get("bong").getRecords());
+		} finally {
+			model.delete();
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void testFlightRecorderEvents() throws IOException {
+		File directory = Files.createTempDirectory("jfr").toFile();
+		File model = new File(directory, "big_ben.model");
+		File dump = new File(directory, "twitterbot.jfr");
+		try {
+			Set<String> names = new HashSet<String>();
+			try (Recording recording = new Recording()) {
+				for (String name : new String[] { "ParseChunk", "TrainBatch", "Freeze", "SnapshotLoad",
+						"GenerateTweet" }) {
+					recording.enable("twitterbot." + name).withoutThreshold();
+				}
+				recording.start();
+				TwitterBot t = new TwitterBot("files/big_ben_clock_tweets.csv", 2);
+				t.mc.freeze();
+				ModelSnapshot.save(t.mc, model.getPath());
+				TwitterBot.load(model.getPath(), new RandomNumberGenerator()).generateTweet(60);
+				recording.stop();
+				recording.dump(dump.toPath());
+			}
+			for (RecordedEvent event : RecordingFile.readAllEvents(dump.toPath())) {
+				names.add(event.getEventType().getName());
+				if (event.getEventType().getName().equals("twitterbot.GenerateTweet")) {
+					assertEquals("COMPLETE", event.getString("status"));
+					assertTrue(event.getLong("steps") > 0);
+				}
+			}
+			assertEquals(new HashSet<String>(Arrays.asList("twitterbot.ParseChunk", "twitterbot.TrainBatch",
+					"twitterbot.Freeze", "twitterbot.SnapshotLoad", "twitterbot.GenerateTweet")), names);
+		} finally {
+			model.delete();
+			dump.delete();
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void testBotHostSharesWordsAndLoadsLazily() throws IOException {
+		File model = File.createTempFile("big_ben", ".model");
+		try {
+			ModelSnapshot.save(new TwitterBot("files/big_ben_clock_tweets.csv", 2).mc, model.getPath());
+			BotHost host = new BotHost(2);
+			host.addCsv("dog", "files/dog_feelings_tweets.csv", 2);
+			host.addCsv("captain", "files/captain_markov_tweets.csv", 2);
+			host.addModel("clock", model.getPath());
+			assertEquals(0, host.loadedCount());
+
+			TwitterBot dog = host.get("dog");
+			assertSame(dog, host.get("dog"));
+			TwitterBot clock = host.get("clock");
+			assertNotNull(key(dog.mc, "soon"));
+			assertSame(key(dog.mc, "soon"), key(clock.mc, "soon"));
+			assertSame(host.getVocabulary().word(host.getVocabulary().find("soon")), key(dog.mc, "soon"));
+
+			// dog was used least recently, so it makes room for captain
+			host.get("captain");
+			assertFalse(host.isLoaded("dog"));
+			assertTrue(host.isLoaded("clock"));
+			assertNotSame(dog, host.get("dog"));
+			assertFalse(host.isLoaded("clock"));
+
+			assertTrue(host.unload("dog"));
+			assertEquals(1, host.loadedCount());
+			assertTrue(host.remove("captain"));
+			assertEquals(0, host.loadedCount());
+			assertEquals(new TreeSet<String>(Arrays.asList("clock", "dog")), host.names());
+			try {
+				host.get("captain");
+				fail("expected an IllegalArgumentException");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		} finally {
+			model.delete();
+		}
+	}
+
+	@Test
+	public void testBotHostLoadsEachBotOnce() throws Exception {
+		BotHost host = new BotHost();
+		host.addCsv("dog", "files/dog_feelings_tweets.csv", 2);
+		host.addCsv("captain", "files/captain_markov_tweets.csv", 2);
+		List<Thread> threads = new ArrayList<Thread>();
+		TwitterBot[] bots = new TwitterBot[6];
+		for (int i = 0; i < bots.length; i++) {
+			int n = i;
+			Thread thread = new Thread(() -> {
+				try {
+					bots[n] = host.get(n % 2 == 0 ? "dog" : "captain");
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// concurrent callers for a name share a single load
+		for (int i = 2; i < bots.length; i++) {
+			assertSame(bots[i % 2], bots[i]);
+		}
+		assertNotSame(bots[0], bots[1]);
+		assertEquals(2, host.loadedCount());
+	}
+
+	private static String key(MarkovChain mc, String word) {
+		for (String key : mc.chain.keySet()) {
+			if (key.equals(word)) {
+				return key;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testDistributedTrainingMatchesInMemoryTraining() throws IOException {
+		String data = "files/dog_feelings_tweets.csv";
+		long[] bounds = DistributedTrainer.split(data, 3);
+		assertEquals(0, bounds[0]);
+		assertEquals(new File(data).length(), bounds[3]);
+		TwitterBot expected = new TwitterBot(data, 2);
+		TwitterBot trained = DistributedTrainer.train(data, 2, 3, new RandomNumberGenerator());
+		assertEquals(expected.mc.startWords.getRecords(), trained.mc.startWords.getRecords());
+		assertEquals(expected.mc.chain.keySet(), trained.mc.chain.keySet());
+		for (String word : expected.mc.chain.keySet()) {
+			assertEquals(expected.mc.get(word).getRecords(), trained.mc.get(word).getRecords());
+		}
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (long v = 1; v <= 1000; v++) {
+			h.record(v * 1000);
+		}
+		assertEquals(1000, h.count());
+		assertEquals(1000000, h.max());
+		long p99 = h.percentile(99);
+		assertTrue(p99 >= 990000 && p99 <= 990000 * 1.016);
+		assertEquals(1000, h.min());
+		assertTrue(h.percentile(0) >= 1000 && h.percentile(0) <= 1016);
+		for (long v : new long[] { 0, 127, 128, 1000, 123456789, Long.MAX_VALUE }) {
+			long highest = LatencyHistogram.highest(LatencyHistogram.bucket(v));
+			assertTrue(highest >= v && highest - v <= v / 64);
+		}
+
+		// one 100ms stall while sampling every 10ms hides 9 samples
+		LatencyHistogram corrected = new LatencyHistogram();
+		corrected.recordCorrected(100, 10);
+		assertEquals(10, corrected.count());
+		assertEquals(10, corrected.min());
+	}
+
+	@Test
+	public void testLoadGenerator() throws InterruptedException {
+		TwitterBot t = new TwitterBot(randomData, 2);
+		LoadGenerator load = new LoadGenerator(t, 2, 60, 1);
+		LoadGenerator.Report open = load.run(LoadGenerator.Arrival.OPEN, 200, Duration.ofMillis(50),
+				Duration.ofMillis(300));
+		// every measured request has a latency, whether it was sent or not
+		assertEquals(open.getCompleted() + open.getOverdue(), open.getLatencies().count());
+		assertTrue(open.getCompleted() > 0);
+		assertTrue(open.getThroughput() > 0);
+		LoadGenerator.Report closed = load.run(LoadGenerator.Arrival.CLOSED, 0, Duration.ZERO,
+				Duration.ofMillis(200));
+		assertEquals(closed.getCompleted(), closed.getLatencies().count());
+		assertEquals(0, closed.getOverdue());
+		assertTrue(closed.getThroughput() > 0);
+	}
+
+	@Test
+	public void testSuggest() {
+		TwitterBot t = new TwitterBot("files/big_ben_clock_tweets.csv", 2);
+		t.mc.freeze();
+		List<Suggestion> suggestions = t.suggest("Hope be back SOON", 3);
+		assertEquals("sorry", suggestions.get(0).getWord());
+		assertEquals(suggestions, t.mc.suggest("soon", 3));
+		assertEquals("bong", t.suggest("bong", 1).get(0).getWord());
+		assertEquals(t.mc.suggestStart(2).size(), t.suggest("Bong bong!", 2).size());
+		assertEquals(t.mc.suggestStart(2).get(0).getWord(), t.suggest("", 2).get(0).getWord());
+	}
+
+	@Test
+	public void testFollowTrainsOnAppendedLines() throws Exception {
+		File csv = File.createTempFile("twitterbot", ".csv");
+		TwitterBot t = new TwitterBot(randomData, 2);
+		try (TweetFollower follower = t.follow(csv.getPath(), 2, 0)) {
+			try (FileOutputStream out = new FileOutputStream(csv, true)) {
+				out.write("a,b,Banana split.\na,b,Cherry".getBytes("UTF-8"));
+			}
+			assertTrue(waitForWord(t, "banana"));
+			// both lines were read at once, but the last one is not complete yet
+			t.lock.lock();
+			try {
+				assertNull(t.mc.get("cherry"));
+			} finally {
+				t.lock.unlock();
+			}
+			try (FileOutputStream out = new FileOutputStream(csv, true)) {
+				out.write(" pie.\n".getBytes("UTF-8"));
+			}
+			assertTrue(waitForWord(t, "cherry"));
+			t.lock.lock();
+			try {
+				assertEquals(1, t.mc.get("cherry").count("pie"));
+			} finally {
+				t.lock.unlock();
+			}
+			assertEquals(csv.length(), follower.offset());
+		} finally {
+			csv.delete();
+		}
+	}
+
+	private static boolean waitForWord(TwitterBot t, String word) throws InterruptedException {
+		for (int i = 0; i < 50; i++) {
+			t.lock.lock();
+			try {
+				if (t.mc.get(word) != null) {
+					return true;
+				}
+			} finally {
+				t.lock.unlock();
+			}
+			Thread.sleep(100);
+		}
+		return false;
+	}
+
 }